@@ -0,0 +1,40 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which reports allocation rate and bytes allocated
+ * per operation next to every score. JMH options on the command line override the defaults
+ * below, e.g. a benchmark regex or -p family=MESH to narrow the parameters.
+ *
+ * benchmark/pom.xml builds it with the src/ tree into benchmark/target/benchmarks.jar, whose
+ * main class this is. Run from the repository root so the data/ corpus is found, or set
+ * -Dcorpus.dir.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        // defaults for the options not given on the command line
+        if (!commandLine.getWarmupIterations().hasValue()) {
+            options.warmupIterations(5);
+        }
+        if (!commandLine.getMeasurementIterations().hasValue()) {
+            options.measurementIterations(10);
+        }
+        if (!commandLine.getForkCount().hasValue()) {
+            options.forks(2);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON).result("jmh-result.json");
+        }
+        new Runner(options.build()).run();
+    }
+}
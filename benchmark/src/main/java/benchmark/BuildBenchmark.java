@@ -0,0 +1,56 @@
+package benchmark;
+
+import flowgraph.EdgeList;
+import flowgraph.IntegralResidualGraph;
+import flowgraph.ResidualGraph;
+import simplegraph.GraphInput;
+import simplegraph.SimpleGraph;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Time to lay out the residual graph from edges already in memory, against the old path
+ * through a SimpleGraph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BuildBenchmark {
+    @Param({"BIPARTITE", "FIXED_DEGREE", "MESH", "RANDOM"})
+    public GraphCorpus.Family family;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"generated"})
+    public String source;
+
+    private EdgeList edges;
+    private SimpleGraph simpleGraph;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.edges = GraphCorpus.load(this.family, this.size, this.source);
+        File file = GraphCorpus.writeText(this.edges);
+        this.simpleGraph = new SimpleGraph();
+        GraphInput.LoadSimpleGraph(this.simpleGraph, file.getPath());
+    }
+
+    @Benchmark
+    public ResidualGraph residualGraph() {
+        return new ResidualGraph(this.edges);
+    }
+
+    @Benchmark
+    public IntegralResidualGraph integralResidualGraph() {
+        return IntegralResidualGraph.create(this.edges);
+    }
+
+    @Benchmark
+    public ResidualGraph fromSimpleGraph() {
+        return new ResidualGraph(this.simpleGraph);
+    }
+}
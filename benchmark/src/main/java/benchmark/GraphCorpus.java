@@ -0,0 +1,157 @@
+package benchmark;
+
+import flowgraph.EdgeList;
+import flowgraph.EdgeListReader;
+import flowgraph.ResidualGraphBuilder;
+import generation.FixedDegree.RandomGraph;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * The graphs the benchmarks run on: the files of the data/ corpus, or graphs of the same
+ * families generated in-process from a fixed seed, so every fork sees the same input. The
+ * corpus holds only some families and sizes, so the benchmarks generate by default; give
+ * -p source=data with a family and size that has a file, e.g. BIPARTITE or FIXED_DEGREE at
+ * 100 or 1000, to run on the corpus.
+ */
+public class GraphCorpus {
+    private static final long SEED = 543;
+
+    /**
+     * The graph families of the generation package, with the prefix of their corpus files.
+     */
+    public enum Family {
+        BIPARTITE("b"), FIXED_DEGREE("f"), MESH("m"), RANDOM("r");
+
+        private final String prefix;
+
+        Family(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * @param family Graph family.
+     * @param size Number of vertices besides s and t, as in the names of the corpus files.
+     * @param source "data" to take the corpus file of this family and size, "generated" to
+     *               generate the graph.
+     * @return The edges.
+     * @throws FileNotFoundException if the corpus has no file of this family and size, so that a
+     *         trial never measures a generated graph under the data label
+     */
+    public static EdgeList load(Family family, int size, String source) throws IOException {
+        switch (source) {
+            case "data":
+                File file = corpusFile(family, size);
+                if (file == null) {
+                    throw new FileNotFoundException("No corpus file " + family.prefix + "-" + size
+                            + ".txt in data/ or the root of " + System.getProperty("corpus.dir", "."));
+                }
+                return EdgeListReader.read(file.getPath());
+            case "generated":
+                return generate(family, size);
+            default:
+                throw new IllegalArgumentException("Unknown graph source " + source + ", expected data or generated");
+        }
+    }
+
+    /**
+     * Write the graph as a text file in the input format, for the load benchmarks.
+     * @return The file, deleted when the JVM exits.
+     */
+    public static File writeText(EdgeList edges) throws IOException {
+        File file = File.createTempFile("corpus", ".txt");
+        file.deleteOnExit();
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file))) {
+            for (int e = 0; e < edges.getEdgesNum(); e++) {
+                double capacity = edges.getCapacity(e);
+                out.write(edges.getName(edges.getFrom(e)) + " " + edges.getName(edges.getTo(e)) + " "
+                        + (capacity == (long) capacity ? Long.toString((long) capacity) : Double.toString(capacity)));
+                out.newLine();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * @return The corpus file of the family and size, looked up in data/ and the repository root
+     *         under the directory given by the corpus.dir property, or null.
+     */
+    private static File corpusFile(Family family, int size) {
+        String root = System.getProperty("corpus.dir", ".");
+        String name = family.prefix + "-" + size + ".txt";
+        for (File file : new File[] {new File(root, "data/" + name), new File(root, name)}) {
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private static EdgeList generate(Family family, int size) {
+        Random random = new Random(SEED);
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        switch (family) {
+            case BIPARTITE:
+                // every left vertex gets about ten right neighbours
+                int side = Math.max(1, size / 2);
+                double probability = Math.min(1, 10.0 / side);
+                for (int i = 1; i <= side; i++) {
+                    builder.addEdge("s", "l" + i, 1 + random.nextInt(100));
+                    builder.addEdge("r" + i, "t", 1 + random.nextInt(100));
+                    for (int j = 1; j <= side; j++) {
+                        if (random.nextDouble() < probability) {
+                            builder.addEdge("l" + i, "r" + j, 1 + random.nextInt(100));
+                        }
+                    }
+                }
+                break;
+            case FIXED_DEGREE:
+                RandomGraph.graphBuilder(size, Math.min(10, size - 1), 1, 100, random, builder);
+                break;
+            case MESH:
+                // the layout of MeshGenerator on a square grid: rows left to right, columns both ways
+                int width = Math.max(2, (int) Math.round(Math.sqrt(size)));
+                for (int i = 1; i <= width; i++) {
+                    builder.addEdge("s", "(" + i + ",1)", 1 + random.nextInt(100));
+                    builder.addEdge("(" + i + "," + width + ")", "t", 1 + random.nextInt(100));
+                }
+                for (int j = 1; j < width; j++) {
+                    for (int i = 1; i <= width; i++) {
+                        builder.addEdge("(" + i + "," + j + ")", "(" + i + "," + (j + 1) + ")", 1 + random.nextInt(100));
+                    }
+                }
+                for (int j = 1; j <= width; j++) {
+                    for (int i = 1; i < width; i++) {
+                        builder.addEdge("(" + i + "," + j + ")", "(" + (i + 1) + "," + j + ")", 1 + random.nextInt(100));
+                        builder.addEdge("(" + (i + 1) + "," + j + ")", "(" + i + "," + j + ")", 1 + random.nextInt(100));
+                    }
+                }
+                break;
+            default:
+                // sparse random digraph with about five arcs per vertex
+                for (int v = 1; v <= size; v++) {
+                    if (random.nextInt(10) == 0) {
+                        builder.addEdge("s", Integer.toString(v), 1 + random.nextInt(100));
+                    }
+                    if (random.nextInt(10) == 0) {
+                        builder.addEdge(Integer.toString(v), "t", 1 + random.nextInt(100));
+                    }
+                }
+                for (int e = 0; e < 5 * size; e++) {
+                    int tail = 1 + random.nextInt(size);
+                    int head = 1 + random.nextInt(size);
+                    if (tail != head) {
+                        builder.addEdge(Integer.toString(tail), Integer.toString(head), 1 + random.nextInt(100));
+                    }
+                }
+                break;
+        }
+        return builder.toEdgeList();
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import flowgraph.BinaryGraphFile;
+import flowgraph.EdgeList;
+import flowgraph.EdgeListReader;
+import flowgraph.ResidualGraph;
+import simplegraph.GraphInput;
+import simplegraph.SimpleGraph;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Time to get a graph file into memory with each loader. The files are written once per trial,
+ * so after the first iteration they are read from the page cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoadBenchmark {
+    @Param({"BIPARTITE", "FIXED_DEGREE", "MESH", "RANDOM"})
+    public GraphCorpus.Family family;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"generated"})
+    public String source;
+
+    private String textPath;
+    private String binaryPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EdgeList edges = GraphCorpus.load(this.family, this.size, this.source);
+        this.textPath = GraphCorpus.writeText(edges).getPath();
+        File binary = File.createTempFile("corpus", ".bin");
+        binary.deleteOnExit();
+        this.binaryPath = binary.getPath();
+        BinaryGraphFile.write(edges, this.binaryPath);
+    }
+
+    @Benchmark
+    public SimpleGraph graphInput() {
+        SimpleGraph graph = new SimpleGraph();
+        GraphInput.LoadSimpleGraph(graph, this.textPath);
+        return graph;
+    }
+
+    @Benchmark
+    public EdgeList edgeListReader() throws Exception {
+        return EdgeListReader.read(this.textPath);
+    }
+
+    @Benchmark
+    public EdgeList edgeListReaderParallel() throws Exception {
+        return EdgeListReader.readParallel(this.textPath);
+    }
+
+    @Benchmark
+    public ResidualGraph binaryMap() throws Exception {
+        return BinaryGraphFile.map(this.binaryPath);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import flowgraph.EdgeList;
+import flowgraph.ResidualGraph;
+import maxflow.MaxFlowSolver;
+import maxflow.MaxFlowSolvers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Solve time of every max flow engine. The engine is created once per trial from the
+ * MaxFlowSolvers registry, and the residual graph is laid out once per trial and reset before
+ * each solve; the reset is a single array copy, small next to any solve.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SolveBenchmark {
+    // a registry name, in any case
+    @Param({"FordFulkerson", "ScalingFordFulkerson", "PreflowPush", "Dinic", "HighestLabelPreflowPush",
+            "EdmondsKarp", "ParallelPreflowPush", "BoykovKolmogorov", "PseudoflowHighest", "PseudoflowLowest",
+            "Bipartite"})
+    public String algorithm;
+
+    @Param({"BIPARTITE", "FIXED_DEGREE", "MESH", "RANDOM"})
+    public GraphCorpus.Family family;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"generated"})
+    public String source;
+
+    private MaxFlowSolver solver;
+    private ResidualGraph graph;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.solver = MaxFlowSolvers.create(this.algorithm);
+        EdgeList edges = GraphCorpus.load(this.family, this.size, this.source);
+        this.graph = new ResidualGraph(edges);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (this.solver instanceof AutoCloseable) {
+            ((AutoCloseable) this.solver).close();
+        }
+    }
+
+    @Benchmark
+    public double solve() throws Exception {
+        this.graph.reset();
+        return this.solver.findMaxFlow(this.graph);
+    }
+}
@@ -0,0 +1,268 @@
+package flowgraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary graph files, laid out so that a graph can be memory-mapped and solved without parsing.
+ *
+ * All numbers are little-endian and every section starts on an 8 byte boundary:
+ * <pre>
+ *   header        magic, version, vertices, arcs, capacity type, source, sink, reserved (ints),
+ *                 then the offsets of the sections below and the file length (longs)
+ *   name offsets  int[vertices + 1], name v is bytes [offset[v], offset[v + 1]) of the next section
+ *   name bytes    UTF-8 names
+ *   start         int[vertices + 1], arcs of vertex v are start[v] .. start[v + 1] - 1
+ *   head          int[arcs]
+ *   reverse       int[arcs]
+ *   backward      byte[arcs], 1 for reverse arcs
+ *   capacity      int, long or double[arcs] as given by the capacity type, 0 for reverse arcs
+ * </pre>
+ * The arc sections are the CSR arrays of FlowNetwork, in the same order.
+ */
+public class BinaryGraphFile {
+    // "NWFG" read as a little-endian int
+    private static final int MAGIC = 0x4746574E;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 96;
+
+    /**
+     * Convert a text graph file to a binary one.
+     * Usage: java flowgraph.BinaryGraphFile input.txt output.bin
+     */
+    public static void main(String[] args) throws IOException {
+        long begin = System.currentTimeMillis();
+        EdgeList edges = EdgeListReader.readParallel(args[0]);
+        write(edges, args[1]);
+        System.out.println("Converted " + edges.getEdgesNum() + " edges in "
+                + (System.currentTimeMillis() - begin) + " ms");
+    }
+
+    /**
+     * Load a graph file of either format, mapping binary files and parsing text ones.
+     * @param path Path of the file.
+     * @return The residual graph.
+     */
+    public static ResidualGraph open(String path) throws IOException {
+        return isBinary(path) ? map(path) : new ResidualGraph(EdgeListReader.read(path));
+    }
+
+    /**
+     * @param path Path of the file.
+     * @return True if the file starts with the magic number of a binary graph file.
+     */
+    public static boolean isBinary(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Map a binary graph file. The arc structure and the capacities stay in the mapping; only
+     * the residual capacities are allocated on the heap.
+     * @param path Path of the file.
+     * @return The residual graph.
+     * @throws IOException if the file cannot be read or is not a binary graph file of this version
+     */
+    public static MappedResidualGraph map(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(path + " is not a binary graph file");
+            }
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a binary graph file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(path + " has unsupported version " + header.getInt(4));
+            }
+            int vertices = header.getInt(8);
+            int arcs = header.getInt(12);
+            CapacityType type = CapacityType.values()[header.getInt(16)];
+            int source = header.getInt(20);
+            int sink = header.getInt(24);
+            if (header.getLong(88) != channel.size()) {
+                throw new IOException(path + " is truncated");
+            }
+
+            IntBuffer nameOffsets = map(channel, header.getLong(32), 4L * (vertices + 1)).asIntBuffer();
+            ByteBuffer nameBytes = map(channel, header.getLong(40), nameOffsets.get(vertices));
+            IntBuffer start = map(channel, header.getLong(48), 4L * (vertices + 1)).asIntBuffer();
+            IntBuffer head = map(channel, header.getLong(56), 4L * arcs).asIntBuffer();
+            IntBuffer rev = map(channel, header.getLong(64), 4L * arcs).asIntBuffer();
+            ByteBuffer backward = map(channel, header.getLong(72), arcs);
+
+            long capacityAt = header.getLong(80);
+            ByteBuffer capacity = map(channel, capacityAt, (type == CapacityType.INT ? 4L : 8L) * arcs);
+            return new MappedResidualGraph(source, sink, type, capacity, start, head, rev, backward, nameOffsets, nameBytes);
+        }
+    }
+
+    /**
+     * Write the edges as a binary graph file, with capacities in the narrowest type that holds them.
+     * @param edges Edges of the network.
+     * @param path Path of the file to write.
+     */
+    public static void write(EdgeList edges, String path) throws IOException {
+        ResidualGraph graph = new ResidualGraph(edges);
+        CapacityType type = CapacityType.of(edges);
+        int vertices = graph.getVerticesNum();
+        int arcs = graph.getArcsNum();
+
+        byte[][] names = new byte[vertices][];
+        int nameLength = 0;
+        for (int v = 0; v < vertices; v++) {
+            names[v] = graph.getVertexName(v).getBytes(StandardCharsets.UTF_8);
+            nameLength += names[v].length;
+        }
+
+        long nameOffsetsAt = HEADER_SIZE;
+        long nameBytesAt = align(nameOffsetsAt + 4L * (vertices + 1));
+        long startAt = align(nameBytesAt + nameLength);
+        long headAt = align(startAt + 4L * (vertices + 1));
+        long revAt = align(headAt + 4L * arcs);
+        long backwardAt = align(revAt + 4L * arcs);
+        long capacityAt = align(backwardAt + arcs);
+        long end = capacityAt + (type == CapacityType.INT ? 4L : 8L) * arcs;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(vertices);
+            out.putInt(arcs);
+            out.putInt(type.ordinal());
+            out.putInt(graph.getSource());
+            out.putInt(graph.getSink());
+            out.putInt(0);
+            out.putLong(nameOffsetsAt);
+            out.putLong(nameBytesAt);
+            out.putLong(startAt);
+            out.putLong(headAt);
+            out.putLong(revAt);
+            out.putLong(backwardAt);
+            out.putLong(capacityAt);
+            out.putLong(end);
+
+            int offset = 0;
+            for (int v = 0; v < vertices; v++) {
+                out.putInt(offset);
+                offset += names[v].length;
+            }
+            out.putInt(offset);
+            out.padTo(nameBytesAt);
+            for (int v = 0; v < vertices; v++) {
+                for (byte b : names[v]) {
+                    out.put(b);
+                }
+            }
+            out.padTo(startAt);
+            for (int v = 0; v < vertices; v++) {
+                out.putInt(graph.getFirstArc(v));
+            }
+            out.putInt(arcs);
+            out.padTo(headAt);
+            for (int arc = 0; arc < arcs; arc++) {
+                out.putInt(graph.getHead(arc));
+            }
+            out.padTo(revAt);
+            for (int arc = 0; arc < arcs; arc++) {
+                out.putInt(graph.getReverse(arc));
+            }
+            out.padTo(backwardAt);
+            for (int arc = 0; arc < arcs; arc++) {
+                out.put((byte) (graph.isBackward(arc) ? 1 : 0));
+            }
+            out.padTo(capacityAt);
+            for (int arc = 0; arc < arcs; arc++) {
+                double capacity = graph.getCapacity(arc);
+                if (type == CapacityType.INT) {
+                    out.putInt((int) capacity);
+                } else if (type == CapacityType.LONG) {
+                    out.putLong((long) capacity);
+                } else {
+                    out.putDouble(capacity);
+                }
+            }
+            out.flush();
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Section of " + size + " bytes is too large to map");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Sequential little-endian writer through a direct buffer.
+     */
+    private static class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void put(byte value) throws IOException {
+            this.ensure(1);
+            this.buffer.put(value);
+            this.position++;
+        }
+
+        void putInt(int value) throws IOException {
+            this.ensure(4);
+            this.buffer.putInt(value);
+            this.position += 4;
+        }
+
+        void putLong(long value) throws IOException {
+            this.ensure(8);
+            this.buffer.putLong(value);
+            this.position += 8;
+        }
+
+        void putDouble(double value) throws IOException {
+            this.ensure(8);
+            this.buffer.putDouble(value);
+            this.position += 8;
+        }
+
+        void padTo(long position) throws IOException {
+            while (this.position < position) {
+                this.put((byte) 0);
+            }
+        }
+
+        void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (this.buffer.remaining() < bytes) {
+                this.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package flowgraph;
+
+/**
+ * Narrowest primitive type able to hold the capacities of a network exactly.
+ */
+public enum CapacityType {
+    INT, LONG, DOUBLE;
+
+    // integers up to 2^53 are exactly representable in a double, the input is parsed as one
+    private static final double MAX_EXACT = 9007199254740992.0;
+
+    /**
+     * @param edges Edges of the network.
+     * @return INT if every capacity is a non-negative integer that fits an int, LONG if every
+     * capacity is a non-negative integer below 2^53, DOUBLE otherwise.
+     */
+    public static CapacityType of(EdgeList edges) {
+        CapacityType type = INT;
+        for (int e = 0; e < edges.getEdgesNum(); e++) {
+            double capacity = edges.getCapacity(e);
+            if (!(capacity >= 0 && capacity <= MAX_EXACT) || capacity != Math.rint(capacity)) {
+                return DOUBLE;
+            }
+            if (capacity > Integer.MAX_VALUE) {
+                type = LONG;
+            }
+        }
+        return type;
+    }
+}
@@ -0,0 +1,57 @@
+package flowgraph;
+
+/**
+ * Residual graph with a cost per unit of flow on every arc, for the min-cost flow engines.
+ * The reverse arc of an edge costs the negated cost of its forward arc, so pushing flow back
+ * refunds what it cost.
+ */
+public class CostResidualGraph extends ResidualGraph {
+    private long[] cost;
+
+    /**
+     * Creates a residual graph from the edge list, with the costs of its cost column.
+     *
+     * @param edges Edges of the network, costing nothing if the list has no costs.
+     */
+    public CostResidualGraph(EdgeList edges) {
+        super(edges);
+        this.cost = new long[this.getArcsNum()];
+        for (int e = 0; e < edges.getEdgesNum(); e++) {
+            int arc = this.getEdgeArc(e);
+            this.cost[arc] = edges.getCost(e);
+            this.cost[this.getReverse(arc)] = -edges.getCost(e);
+        }
+    }
+
+    /**
+     * @param arc Id of the arc.
+     * @return Cost per unit of flow along the arc, negative for the reverse arc of a positive cost.
+     */
+    public long getCost(int arc) {
+        return this.cost[arc];
+    }
+
+    /**
+     * @return The largest absolute cost of any arc.
+     */
+    public long getMaxCost() {
+        long max = 0;
+        for (long c : this.cost) {
+            max = Math.max(max, Math.abs(c));
+        }
+        return max;
+    }
+
+    /**
+     * @return Total cost of the flow in the graph, the sum over forward arcs of flow times cost.
+     */
+    public double getFlowCost() {
+        double total = 0;
+        for (int arc = 0; arc < this.getArcsNum(); arc++) {
+            if (!this.isBackward(arc)) {
+                total += this.getFlow(arc) * this.cost[arc];
+            }
+        }
+        return total;
+    }
+}
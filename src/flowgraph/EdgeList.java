@@ -0,0 +1,143 @@
+package flowgraph;
+
+import java.util.*;
+import simplegraph.*;
+
+/**
+ * The edges of a network in input order, with the vertices numbered by dense int ids.
+ * This is what the residual graphs are laid out from.
+ */
+public class EdgeList {
+    private String[] names;
+    private int[] from;
+    private int[] to;
+    private double[] capacities;
+    // cost of every edge, null if the input had no cost column
+    private long[] costs;
+
+    // built on the first lookup by name, shared by every graph laid out from this list
+    private HashMap<String, Integer> ids;
+
+    /**
+     * @param names Name of every vertex, indexed by id.
+     * @param from Tail of every edge.
+     * @param to Head of every edge.
+     * @param capacities Capacity of every edge.
+     */
+    public EdgeList(String[] names, int[] from, int[] to, double[] capacities) {
+        this.names = names;
+        this.from = from;
+        this.to = to;
+        this.capacities = capacities;
+    }
+
+    /**
+     * @param names Name of every vertex, indexed by id.
+     * @param from Tail of every edge.
+     * @param to Head of every edge.
+     * @param capacities Capacity of every edge.
+     * @param costs Cost per unit of flow of every edge, or null if the edges have none.
+     */
+    public EdgeList(String[] names, int[] from, int[] to, double[] capacities, long[] costs) {
+        this(names, from, to, capacities);
+        this.costs = costs;
+    }
+
+    /**
+     * Number the vertices of the simple graph in iteration order and collect its edges.
+     * @param graph Simple graph whose edge data are Double capacities, with costs on the
+     *              edges where GraphInput read a cost column.
+     * @return The edge list.
+     */
+    public static EdgeList of(SimpleGraph graph) {
+        int n = graph.numVertices();
+        int m = graph.numEdges();
+
+        String[] names = new String[n];
+        HashMap<String, Integer> ids = new HashMap<>(2 * n);
+        Iterator<?> vertexIterator = graph.vertices();
+        while (vertexIterator.hasNext()) {
+            Vertex vertex = (Vertex) vertexIterator.next();
+            String name = (String) vertex.getName();
+            names[ids.size()] = name;
+            ids.put(name, ids.size());
+        }
+
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] capacities = new double[m];
+        long[] costs = null;
+        Iterator<?> edgeIterator = graph.edges();
+        for (int e = 0; edgeIterator.hasNext(); e++) {
+            Edge edge = (Edge) edgeIterator.next();
+            from[e] = ids.get((String) edge.getFirstEndpoint().getName());
+            to[e] = ids.get((String) edge.getSecondEndpoint().getName());
+            capacities[e] = (double) edge.getData();
+            if (edge.getCost() != null) {
+                if (costs == null) {
+                    costs = new long[m];
+                }
+                costs[e] = edge.getCost();
+            }
+        }
+        EdgeList edges = new EdgeList(names, from, to, capacities, costs);
+        edges.ids = ids;
+        return edges;
+    }
+
+    public int getVerticesNum() {
+        return this.names.length;
+    }
+
+    public int getEdgesNum() {
+        return this.from.length;
+    }
+
+    public String getName(int vertex) {
+        return this.names[vertex];
+    }
+
+    /**
+     * @param name Name of the vertex.
+     * @return Id of the vertex, or -1 if there is no such vertex.
+     */
+    public int getVertexId(String name) {
+        HashMap<String, Integer> ids = this.ids;
+        if (ids == null) {
+            ids = new HashMap<>(2 * this.names.length);
+            for (int v = 0; v < this.names.length; v++) {
+                ids.put(this.names[v], v);
+            }
+            this.ids = ids;
+        }
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public int getFrom(int edge) {
+        return this.from[edge];
+    }
+
+    public int getTo(int edge) {
+        return this.to[edge];
+    }
+
+    public double getCapacity(int edge) {
+        return this.capacities[edge];
+    }
+
+    /**
+     * @return Whether the input gave costs, read from the optional fourth column.
+     */
+    public boolean hasCosts() {
+        return this.costs != null;
+    }
+
+    /**
+     * @param edge Id of the edge.
+     * @return Cost per unit of flow on the edge, zero if the input gave no costs.
+     */
+    public long getCost(int edge) {
+        return this.costs == null ? 0 : this.costs[edge];
+    }
+}
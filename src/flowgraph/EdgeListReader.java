@@ -0,0 +1,402 @@
+package flowgraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads a graph file straight into an EdgeList, without going through SimpleGraph.
+ *
+ * The file is memory-mapped and parsed in place: every line holds two vertex names and a
+ * capacity separated by whitespace, and optionally an integer cost, as read by
+ * GraphInput.LoadSimpleGraph. Lines without a cost cost nothing. Names are interned
+ * from their bytes by a NameTable, so the only objects created are one String per vertex.
+ * Vertices are numbered in order of first appearance, which is also the order GraphInput
+ * inserts them into a SimpleGraph, so both loaders give the same ids.
+ *
+ * readParallel splits large files into line-aligned byte ranges that are parsed as fork-join
+ * tasks, each into its own edge buffers and NameTable. The names are then resolved through a
+ * concurrent table that keeps the earliest (chunk, local id) each name was seen at; sorting
+ * those keys gives global ids in order of first appearance, so the result is identical to read.
+ */
+public class EdgeListReader {
+    // a mapping covers at most this many bytes, windows end on a line break
+    private static final long WINDOW = 1L << 30;
+
+    // files smaller than this are not worth splitting
+    private static final long MIN_CHUNK = 1L << 22;
+
+    private NameTable names = new NameTable();
+    private int[] from;
+    private int[] to;
+    private double[] capacities;
+    // allocated at the first cost column
+    private long[] costs;
+    private int edges;
+    private int line;
+
+    private EdgeListReader(long bytes) {
+        // lines of the data files average 9 to 14 bytes, so one edge per 8 bytes seldom runs
+        // short; files of shorter lines, down to 6 bytes, make the arrays grow once
+        int estimate = (int) Math.min(Math.max(16, bytes / 8), Integer.MAX_VALUE - 8);
+        this.from = new int[estimate];
+        this.to = new int[estimate];
+        this.capacities = new double[estimate];
+    }
+
+    /**
+     * Load the edges of a graph file.
+     * @param path Path of the file.
+     * @return The edges, with vertices numbered in order of first appearance.
+     * @throws IOException if the file cannot be read or a line is not "name name capacity [cost]"
+     */
+    public static EdgeList read(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            EdgeListReader reader = new EdgeListReader(size);
+            for (long position = 0; position < size; ) {
+                long length = Math.min(WINDOW, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = (int) length;
+                if (position + length < size) {
+                    // stop after the last complete line, the next window starts with the rest
+                    while (end > 0 && buffer.get(end - 1) != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        throw new IOException("Line longer than " + WINDOW + " bytes in " + path);
+                    }
+                }
+                reader.parse(buffer, end);
+                position += end;
+            }
+            return reader.toEdgeList();
+        }
+    }
+
+    /**
+     * Load the edges of a graph file, parsing chunks of the file in parallel on the common
+     * fork-join pool. Gives the same edge list as read, which it falls back to for small files
+     * and single-threaded pools.
+     * @param path Path of the file.
+     * @return The edges, with vertices numbered in order of first appearance.
+     * @throws IOException if the file cannot be read or a line is not "name name capacity [cost]"
+     */
+    public static EdgeList readParallel(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            int threads = ForkJoinPool.getCommonPoolParallelism();
+            long[] bounds = split(channel, threads);
+            // merging costs a pass over the names of every chunk, which only pays off on several cores
+            if (threads == 1 || bounds.length <= 2) {
+                return read(path);
+            }
+
+            EdgeListReader[] chunks = new EdgeListReader[bounds.length - 1];
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int c = 0; c < chunks.length; c++) {
+                int chunk = c;
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    long length = bounds[chunk + 1] - bounds[chunk];
+                    chunks[chunk] = new EdgeListReader(length);
+                    chunks[chunk].parse(channel.map(FileChannel.MapMode.READ_ONLY, bounds[chunk], length), (int) length);
+                    return null;
+                }));
+            }
+            try {
+                ForkJoinTask.invokeAll(tasks);
+            } catch (RuntimeException e) {
+                // line numbers are only known to the sequential reader, let it report the error
+                return read(path);
+            }
+            return merge(chunks);
+        }
+    }
+
+    /**
+     * Parse the complete lines in buffer[0, end).
+     */
+    private void parse(ByteBuffer buffer, int end) throws IOException {
+        int i = 0;
+        while (i < end) {
+            this.line++;
+            int lineEnd = i;
+            while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            int tokens = 0;
+            int start0 = 0, end0 = 0, start1 = 0, end1 = 0, start2 = 0, end2 = 0, start3 = 0, end3 = 0;
+            for (int j = i; j < lineEnd; ) {
+                if (isSpace(buffer.get(j))) {
+                    j++;
+                    continue;
+                }
+                int tokenStart = j;
+                while (j < lineEnd && !isSpace(buffer.get(j))) {
+                    j++;
+                }
+                if (tokens == 0) {
+                    start0 = tokenStart;
+                    end0 = j;
+                } else if (tokens == 1) {
+                    start1 = tokenStart;
+                    end1 = j;
+                } else if (tokens == 2) {
+                    start2 = tokenStart;
+                    end2 = j;
+                } else if (tokens == 3) {
+                    start3 = tokenStart;
+                    end3 = j;
+                }
+                tokens++;
+            }
+
+            if (tokens == 3 || tokens == 4) {
+                this.addEdge(this.names.intern(buffer, start0, end0), this.names.intern(buffer, start1, end1),
+                        this.parseCapacity(buffer, start2, end2));
+                if (tokens == 4) {
+                    this.setCost(this.parseCost(buffer, start3, end3));
+                }
+            } else if (tokens != 0) {
+                throw new IOException("Invalid number of tokens found on line " + this.line);
+            }
+            i = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Parse plain integers directly, anything else through Double.parseDouble.
+     */
+    private double parseCapacity(ByteBuffer buffer, int start, int end) throws IOException {
+        int i = start;
+        boolean negative = buffer.get(i) == '-';
+        if (negative || buffer.get(i) == '+') {
+            i++;
+        }
+        if (i < end && end - i <= 18) {
+            long value = 0;
+            for (; i < end; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = 10 * value + digit;
+            }
+            if (i == end) {
+                return negative ? -value : value;
+            }
+        }
+
+        byte[] bytes = new byte[end - start];
+        for (int j = 0; j < bytes.length; j++) {
+            bytes[j] = buffer.get(start + j);
+        }
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid capacity on line " + this.line, e);
+        }
+    }
+
+    /**
+     * Parse an integer cost, which may be negative.
+     */
+    private long parseCost(ByteBuffer buffer, int start, int end) throws IOException {
+        byte[] bytes = new byte[end - start];
+        for (int j = 0; j < bytes.length; j++) {
+            bytes[j] = buffer.get(start + j);
+        }
+        try {
+            return Long.parseLong(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid cost on line " + this.line, e);
+        }
+    }
+
+    /**
+     * Set the cost of the edge added last.
+     */
+    private void setCost(long cost) {
+        if (this.costs == null) {
+            this.costs = new long[this.from.length];
+        }
+        this.costs[this.edges - 1] = cost;
+    }
+
+    private void addEdge(int tail, int head, double capacity) {
+        if (this.edges == this.from.length) {
+            int length = (int) Math.min(2L * this.edges, Integer.MAX_VALUE - 8);
+            this.from = Arrays.copyOf(this.from, length);
+            this.to = Arrays.copyOf(this.to, length);
+            this.capacities = Arrays.copyOf(this.capacities, length);
+            if (this.costs != null) {
+                this.costs = Arrays.copyOf(this.costs, length);
+            }
+        }
+        this.from[this.edges] = tail;
+        this.to[this.edges] = head;
+        this.capacities[this.edges] = capacity;
+        this.edges++;
+    }
+
+    /**
+     * Cut the file into about four ranges per thread, each ending on a line break and no
+     * longer than a mapping window.
+     * @return Start of every range followed by the file size.
+     */
+    private static long[] split(FileChannel channel, int threads) throws IOException {
+        long size = channel.size();
+        long chunk = Math.min(WINDOW / 2, Math.max(MIN_CHUNK, size / (4L * threads)));
+        ArrayList<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        long position = 0;
+        while (size - position > chunk) {
+            // move the cut past the next line break
+            long cut = position + chunk;
+            boolean found = false;
+            while (!found && cut < size) {
+                buffer.clear();
+                int read = channel.read(buffer, cut);
+                for (int i = 0; i < read && !found; i++) {
+                    found = buffer.get(i) == '\n';
+                    cut++;
+                }
+            }
+            if (cut - position > WINDOW) {
+                throw new IOException("Line longer than " + (WINDOW / 2) + " bytes");
+            }
+            if (cut >= size) {
+                break;
+            }
+            bounds.add(cut);
+            position = cut;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Give the names of all chunks global ids in order of first appearance and concatenate
+     * the edges of the chunks, translating their local vertex ids.
+     */
+    private static EdgeList merge(EdgeListReader[] chunks) {
+        // the entry of every local name, shared by all chunks that contain the name
+        GlobalName[][] entries = new GlobalName[chunks.length][];
+        ConcurrentHashMap<String, GlobalName> table = new ConcurrentHashMap<>();
+        forEachChunk(chunks.length, c -> {
+            String[] localNames = chunks[c].names.getNames();
+            entries[c] = new GlobalName[localNames.length];
+            for (int id = 0; id < localNames.length; id++) {
+                GlobalName entry = table.computeIfAbsent(localNames[id], GlobalName::new);
+                entry.firstSeen.accumulateAndGet((long) c << 32 | id, Math::min);
+                entries[c][id] = entry;
+            }
+        });
+
+        // ids in order of first appearance are the ranks of the keys
+        long[] keys = new long[table.size()];
+        int n = 0;
+        for (GlobalName entry : table.values()) {
+            keys[n++] = entry.firstSeen.get();
+        }
+        Arrays.parallelSort(keys);
+        String[] names = new String[n];
+        forEachChunk(chunks.length, c -> {
+            for (int id = 0; id < entries[c].length; id++) {
+                GlobalName entry = entries[c][id];
+                if (entry.firstSeen.get() == ((long) c << 32 | id)) {
+                    entry.id = Arrays.binarySearch(keys, entry.firstSeen.get());
+                    names[entry.id] = entry.name;
+                }
+            }
+        });
+
+        // offset of every chunk in the merged arrays
+        long[] offsets = new long[chunks.length + 1];
+        for (int c = 0; c < chunks.length; c++) {
+            offsets[c + 1] = offsets[c] + chunks[c].edges;
+        }
+        if (offsets[chunks.length] > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many edges: " + offsets[chunks.length]);
+        }
+
+        int m = (int) offsets[chunks.length];
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] capacities = new double[m];
+        long[] costs = Arrays.stream(chunks).anyMatch(chunk -> chunk.costs != null) ? new long[m] : null;
+        forEachChunk(chunks.length, c -> {
+            EdgeListReader chunk = chunks[c];
+            int[] global = new int[entries[c].length];
+            for (int id = 0; id < global.length; id++) {
+                global[id] = entries[c][id].id;
+            }
+            int offset = (int) offsets[c];
+            for (int e = 0; e < chunk.edges; e++) {
+                from[offset + e] = global[chunk.from[e]];
+                to[offset + e] = global[chunk.to[e]];
+            }
+            System.arraycopy(chunk.capacities, 0, capacities, offset, chunk.edges);
+            if (chunk.costs != null) {
+                System.arraycopy(chunk.costs, 0, costs, offset, chunk.edges);
+            }
+        });
+        return new EdgeList(names, from, to, capacities, costs);
+    }
+
+    /**
+     * Entry of the concurrent name table.
+     */
+    private static class GlobalName {
+        final String name;
+        // chunk << 32 | local id of the earliest occurrence
+        final AtomicLong firstSeen = new AtomicLong(Long.MAX_VALUE);
+        int id;
+
+        GlobalName(String name) {
+            this.name = name;
+        }
+    }
+
+    private interface ChunkAction {
+        void run(int chunk);
+    }
+
+    private static void forEachChunk(int chunks, ChunkAction action) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int c = 0; c < chunks; c++) {
+            int chunk = c;
+            tasks.add(ForkJoinTask.adapt(() -> action.run(chunk)));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    private EdgeList toEdgeList() {
+        return new EdgeList(this.names.getNames(), Arrays.copyOf(this.from, this.edges),
+                Arrays.copyOf(this.to, this.edges), Arrays.copyOf(this.capacities, this.edges),
+                this.costs == null ? null : Arrays.copyOf(this.costs, this.edges));
+    }
+
+    /**
+     * The delimiters of StringTokenizer, which GraphInput uses.
+     */
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == '\n';
+    }
+}
@@ -0,0 +1,13 @@
+package flowgraph;
+
+/**
+ * Receives the edges of a network one at a time, from a loader or a generator.
+ */
+public interface EdgeSink {
+    /**
+     * @param tail Name of the vertex the edge leaves.
+     * @param head Name of the vertex the edge enters.
+     * @param capacity Capacity of the edge.
+     */
+    void addEdge(String tail, String head, double capacity);
+}
@@ -0,0 +1,379 @@
+package flowgraph;
+
+import java.util.*;
+
+/**
+ * Arc structure shared by the residual graphs, stored in compressed sparse row (CSR) form.
+ *
+ * Vertices are dense int ids. The arcs leaving vertex v occupy the index range
+ * [getFirstArc(v), getLastArc(v)) of the primitive arc arrays, so the "next" arc of
+ * an adjacency list is simply the following index. Every forward arc is paired with a
+ * preallocated reverse arc (see getReverse). The residual capacities are kept by the
+ * subclasses, in the primitive type they are specialized for.
+ */
+public abstract class FlowNetwork {
+    private static final byte SOURCE = 1;
+    private static final byte SINK = 2;
+
+    // names and their ids are looked up in the edge list, which graphs built from it share
+    private EdgeList edges;
+
+    // arcs leaving vertex v are start[v] .. start[v + 1] - 1
+    private int[] start;
+
+    // head[a] is the vertex arc a points to, rev[a] the paired arc in the other direction
+    private int[] head;
+    private int[] rev;
+    private boolean[] backward;
+
+    private int source;
+    private int sink;
+
+    // every source and sink when there are several, null for a single pair
+    private int[] sources;
+    private int[] sinks;
+    // SOURCE or SINK for the terminals of the sets, 0 for other vertices
+    private byte[] terminal;
+
+    // forward arc of every edge, null if the arc structure is kept elsewhere
+    private int[] edgeArcs;
+
+    /**
+     * Lay out the arcs in CSR order. The forward arc of edge e is placed in the list of
+     * its tail and its reverse arc in the list of its head, both in input order.
+     * @param edges Edges of the network.
+     */
+    protected FlowNetwork(EdgeList edges) {
+        int n = edges.getVerticesNum();
+        int m = edges.getEdgesNum();
+
+        this.edges = edges;
+        this.start = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            this.start[edges.getFrom(e) + 1]++;
+            this.start[edges.getTo(e) + 1]++;
+        }
+        Arrays.parallelPrefix(this.start, Integer::sum);
+
+        int arcs = 2 * m;
+        this.head = new int[arcs];
+        this.rev = new int[arcs];
+        this.backward = new boolean[arcs];
+        this.edgeArcs = new int[m];
+
+        int[] next = Arrays.copyOf(this.start, n);
+        for (int e = 0; e < m; e++) {
+            int from = edges.getFrom(e);
+            int to = edges.getTo(e);
+            int forwardArc = next[from]++;
+            int backwardArc = next[to]++;
+
+            this.head[forwardArc] = to;
+            this.rev[forwardArc] = backwardArc;
+            this.head[backwardArc] = from;
+            this.rev[backwardArc] = forwardArc;
+            this.backward[backwardArc] = true;
+            this.edgeArcs[e] = forwardArc;
+        }
+
+        this.source = this.getVertexId("s");
+        this.sink = this.getVertexId("t");
+    }
+
+    /**
+     * For subclasses that keep the arc structure elsewhere and override the accessors below.
+     * @param source Id of the source vertex, or -1.
+     * @param sink Id of the sink vertex, or -1.
+     */
+    protected FlowNetwork(int source, int sink) {
+        this.source = source;
+        this.sink = sink;
+    }
+
+    /**
+     * @param edge Id of an edge of the list the network was laid out from.
+     * @return Id of the forward arc of the edge.
+     * @throws UnsupportedOperationException if the arc structure is kept elsewhere
+     */
+    public int getEdgeArc(int edge) {
+        if (this.edgeArcs == null) {
+            throw new UnsupportedOperationException("Arcs were not laid out from an edge list");
+        }
+        return this.edgeArcs[edge];
+    }
+
+    /**
+     * Get the number of vertices in the graph.
+     * @return Number of vertices in the graph.
+     */
+    public int getVerticesNum() {
+        return this.edges.getVerticesNum();
+    }
+
+    /**
+     * Get the number of arcs in the graph, counting forward and reverse arcs.
+     * @return Number of arcs in the graph.
+     */
+    public int getArcsNum() {
+        return this.head.length;
+    }
+
+    /**
+     * @return Id of the source vertex, or -1 if the graph has none. With several sources, the
+     *         first of them.
+     */
+    public int getSource() {
+        return this.source;
+    }
+
+    /**
+     * @return Id of the sink vertex, or -1 if the graph has none. With several sinks, the
+     *         first of them.
+     */
+    public int getSink() {
+        return this.sink;
+    }
+
+    /**
+     * @return Ids of all source vertices, empty if the graph has none. The array is a copy.
+     */
+    public int[] getSources() {
+        if (this.sources != null) {
+            return this.sources.clone();
+        }
+        return this.source < 0 ? new int[0] : new int[] {this.source};
+    }
+
+    /**
+     * @return Ids of all sink vertices, empty if the graph has none. The array is a copy.
+     */
+    public int[] getSinks() {
+        if (this.sinks != null) {
+            return this.sinks.clone();
+        }
+        return this.sink < 0 ? new int[0] : new int[] {this.sink};
+    }
+
+    /**
+     * @param vertex Id of the vertex.
+     * @return Whether the vertex is a source.
+     */
+    public boolean isSource(int vertex) {
+        return this.terminal != null ? this.terminal[vertex] == SOURCE : vertex == this.source;
+    }
+
+    /**
+     * @param vertex Id of the vertex.
+     * @return Whether the vertex is a sink.
+     */
+    public boolean isSink(int vertex) {
+        return this.terminal != null ? this.terminal[vertex] == SINK : vertex == this.sink;
+    }
+
+    /**
+     * @param vertex Id of the vertex.
+     * @return Whether the vertex is a source or a sink.
+     */
+    public boolean isTerminal(int vertex) {
+        return this.terminal != null ? this.terminal[vertex] != 0 : vertex == this.source || vertex == this.sink;
+    }
+
+    /**
+     * @return Whether the graph has more than one source or more than one sink.
+     */
+    public boolean hasMultipleTerminals() {
+        return this.terminal != null;
+    }
+
+    /**
+     * Choose the terminals of the network. By default they are the vertices named "s" and "t".
+     * Set them before solving, or reset the graph afterwards, as flow already pushed is not moved.
+     * Replaces any sets of several sources and sinks.
+     * @param source Id of the source vertex.
+     * @param sink Id of the sink vertex.
+     * @throws IllegalArgumentException if an id is out of range or both are the same vertex
+     */
+    public void setTerminals(int source, int sink) {
+        int n = this.getVerticesNum();
+        if (source < 0 || source >= n || sink < 0 || sink >= n) {
+            throw new IllegalArgumentException("Terminal out of range: " + source + ", " + sink);
+        }
+        if (source == sink) {
+            throw new IllegalArgumentException("Source and sink are the same vertex " + source);
+        }
+        this.source = source;
+        this.sink = sink;
+        this.sources = this.sinks = null;
+        this.terminal = null;
+    }
+
+    /**
+     * Choose several sources and sinks, which the solvers treat as one virtual source joined to
+     * every source and one virtual sink joined from every sink, both by arcs of unlimited
+     * capacity. The virtual arcs are never stored: solvers that support several terminals start
+     * from all sources at once and stop at any sink. The flow of the graph is the net flow out
+     * of all sources together. Set them before solving, or reset the graph afterwards.
+     * @param sources Ids of the source vertices, duplicates ignored.
+     * @param sinks Ids of the sink vertices, duplicates ignored.
+     * @throws IllegalArgumentException if a set is empty, an id is out of range or a vertex is
+     *         in both sets
+     */
+    public void setTerminals(int[] sources, int[] sinks) {
+        int n = this.getVerticesNum();
+        if (sources.length == 0 || sinks.length == 0) {
+            throw new IllegalArgumentException("Need at least one source and one sink");
+        }
+        byte[] terminal = new byte[n];
+        int[] uniqueSources = this.mark(terminal, sources, SOURCE);
+        int[] uniqueSinks = this.mark(terminal, sinks, SINK);
+        if (uniqueSources.length == 1 && uniqueSinks.length == 1) {
+            this.setTerminals(uniqueSources[0], uniqueSinks[0]);
+            return;
+        }
+        this.source = uniqueSources[0];
+        this.sink = uniqueSinks[0];
+        this.sources = uniqueSources;
+        this.sinks = uniqueSinks;
+        this.terminal = terminal;
+    }
+
+    /**
+     * Choose several sources and sinks by name, see setTerminals(int[], int[]).
+     * @param sources Names of the source vertices.
+     * @param sinks Names of the sink vertices.
+     * @throws IllegalArgumentException if there is no vertex of some name, or as above
+     */
+    public void setTerminals(String[] sources, String[] sinks) {
+        this.setTerminals(this.ids(sources), this.ids(sinks));
+    }
+
+    /**
+     * Mark the vertices as terminals of one kind, dropping duplicates.
+     * @return The vertices, each once, in their first order.
+     */
+    private int[] mark(byte[] terminal, int[] vertices, byte kind) {
+        int[] unique = new int[vertices.length];
+        int count = 0;
+        for (int vertex : vertices) {
+            if (vertex < 0 || vertex >= terminal.length) {
+                throw new IllegalArgumentException("Terminal out of range: " + vertex);
+            }
+            if (terminal[vertex] == kind) {
+                continue;
+            }
+            if (terminal[vertex] != 0) {
+                throw new IllegalArgumentException("Vertex " + vertex + " is both a source and a sink");
+            }
+            terminal[vertex] = kind;
+            unique[count++] = vertex;
+        }
+        return Arrays.copyOf(unique, count);
+    }
+
+    private int[] ids(String[] names) {
+        int[] ids = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            ids[i] = this.getVertexId(names[i]);
+            if (ids[i] < 0) {
+                throw new IllegalArgumentException("No vertex named " + names[i]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Choose the terminals of the network by name. Names are resolved once here, solvers
+     * only compare ids.
+     * @param source Name of the source vertex.
+     * @param sink Name of the sink vertex.
+     * @throws IllegalArgumentException if there is no vertex of either name
+     */
+    public void setTerminals(String source, String sink) {
+        int sourceId = this.getVertexId(source);
+        int sinkId = this.getVertexId(sink);
+        if (sourceId < 0) {
+            throw new IllegalArgumentException("No vertex named " + source);
+        }
+        if (sinkId < 0) {
+            throw new IllegalArgumentException("No vertex named " + sink);
+        }
+        this.setTerminals(sourceId, sinkId);
+    }
+
+    /**
+     * Get id of the vertex with given name.
+     * @param name Name of the vertex.
+     * @return Id of the vertex, or -1 if there is no such vertex.
+     */
+    public int getVertexId(String name) {
+        return this.edges.getVertexId(name);
+    }
+
+    /**
+     * @param vertex Id of the vertex.
+     * @return Name of the vertex.
+     */
+    public String getVertexName(int vertex) {
+        return this.edges.getName(vertex);
+    }
+
+    /**
+     * @param vertex Id of the vertex.
+     * @return First arc leaving the vertex.
+     */
+    public int getFirstArc(int vertex) {
+        return this.start[vertex];
+    }
+
+    /**
+     * @param vertex Id of the vertex.
+     * @return One past the last arc leaving the vertex.
+     */
+    public int getLastArc(int vertex) {
+        return this.start[vertex + 1];
+    }
+
+    /**
+     * @param arc Id of the arc.
+     * @return Vertex the arc points to.
+     */
+    public int getHead(int arc) {
+        return this.head[arc];
+    }
+
+    /**
+     * @param arc Id of the arc.
+     * @return Vertex the arc leaves from.
+     */
+    public int getTail(int arc) {
+        return this.head[this.rev[arc]];
+    }
+
+    /**
+     * @param arc Id of the arc.
+     * @return The paired arc in the opposite direction.
+     */
+    public int getReverse(int arc) {
+        return this.rev[arc];
+    }
+
+    /**
+     * Whether the arc is a reverse arc, i.e. it does not correspond to an input edge.
+     * @param arc Id of the arc.
+     * @return True if arc is a reverse arc and false if it is a forward arc.
+     */
+    public boolean isBackward(int arc) {
+        return this.backward[arc];
+    }
+
+    /**
+     * @param arc Id of the arc.
+     * @return True if the arc has residual capacity left.
+     */
+    public abstract boolean isResidual(int arc);
+
+    /**
+     * Remove all flow from the graph, restoring the residual capacities of the input.
+     */
+    public abstract void reset();
+}
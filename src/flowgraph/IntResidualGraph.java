@@ -0,0 +1,49 @@
+package flowgraph;
+
+/**
+ * Integral residual graph whose capacities all fit an int. The residual capacities of an
+ * arc and its reverse arc add up to the capacity of the edge, so they fit an int as well.
+ */
+public class IntResidualGraph extends IntegralResidualGraph {
+    private int[] cap;
+    private int[] capacity;
+
+    /**
+     * @param edges Edges of the network, every capacity a non-negative integer that fits an int.
+     */
+    public IntResidualGraph(EdgeList edges) {
+        super(edges);
+        this.cap = new int[this.getArcsNum()];
+        this.capacity = new int[this.getArcsNum()];
+        for (int e = 0; e < edges.getEdgesNum(); e++) {
+            this.cap[this.getEdgeArc(e)] = (int) edges.getCapacity(e);
+            this.capacity[this.getEdgeArc(e)] = (int) edges.getCapacity(e);
+        }
+    }
+
+    @Override
+    public CapacityType getCapacityType() {
+        return CapacityType.INT;
+    }
+
+    @Override
+    public long getResidualCapacity(int arc) {
+        return this.cap[arc];
+    }
+
+    @Override
+    public long getCapacity(int arc) {
+        return this.capacity[arc];
+    }
+
+    @Override
+    public void increaseFlow(int arc, long increment) {
+        this.cap[arc] -= (int) increment;
+        this.cap[this.getReverse(arc)] += (int) increment;
+    }
+
+    @Override
+    public void reset() {
+        System.arraycopy(this.capacity, 0, this.cap, 0, this.cap.length);
+    }
+}
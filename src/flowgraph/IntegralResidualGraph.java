@@ -0,0 +1,87 @@
+package flowgraph;
+
+/**
+ * Residual graph with integral capacities. Flow arithmetic is exact, and the capacities are
+ * stored in the narrowest primitive type that holds them; the accessors widen to long.
+ */
+public abstract class IntegralResidualGraph extends FlowNetwork {
+
+    protected IntegralResidualGraph(EdgeList edges) {
+        super(edges);
+    }
+
+    /**
+     * Creates a residual graph in the narrowest type that fits the capacities.
+     * @param edges Edges of the network.
+     * @return An int or long residual graph.
+     * @throws IllegalArgumentException if some capacity is not a non-negative integer
+     */
+    public static IntegralResidualGraph create(EdgeList edges) {
+        switch (CapacityType.of(edges)) {
+            case INT:
+                return new IntResidualGraph(edges);
+            case LONG:
+                return new LongResidualGraph(edges);
+            default:
+                throw new IllegalArgumentException("Capacities are not integral");
+        }
+    }
+
+    /**
+     * @return The type the capacities are stored in.
+     */
+    public abstract CapacityType getCapacityType();
+
+    /**
+     * Get residual capacity of the arc.
+     * For forward arc, residual capacity = capacity - flow.
+     * For reverse arc, residual capacity = flow in corresponding forward arc.
+     * @param arc Id of the arc.
+     * @return Residual capacity of the arc.
+     */
+    public abstract long getResidualCapacity(int arc);
+
+    /**
+     * @param arc Id of the arc.
+     * @return Capacity of the input edge for forward arcs, zero for reverse arcs.
+     */
+    public abstract long getCapacity(int arc);
+
+    /**
+     * Push given amount of flow along the arc. Pushing along a reverse arc cancels flow
+     * on its forward arc. The increment must not exceed the residual capacity.
+     * @param arc Id of the arc.
+     * @param increment Amount of flow to push.
+     */
+    public abstract void increaseFlow(int arc, long increment);
+
+    /**
+     * Get amount of flow on the arc. Flow on reverse arcs is always zero.
+     * @param arc Id of the arc.
+     * @return Flow on the arc.
+     */
+    public long getFlow(int arc) {
+        return this.isBackward(arc) ? 0 : this.getCapacity(arc) - this.getResidualCapacity(arc);
+    }
+
+    @Override
+    public boolean isResidual(int arc) {
+        return this.getResidualCapacity(arc) > 0;
+    }
+
+    /**
+     * Get the flow of the graph, the net flow out of the source, or out of all sources together
+     * @return The flow of the graph
+     */
+    public long getGraphFlow() {
+        long flow = 0;
+        for (int source : this.getSources()) {
+            for (int arc = this.getFirstArc(source); arc < this.getLastArc(source); arc++) {
+                // flow on edges into the source counts against the flow out of it, so flow
+                // between two sources cancels out
+                flow += this.isBackward(arc) ? -this.getFlow(this.getReverse(arc)) : this.getFlow(arc);
+            }
+        }
+        return flow;
+    }
+}
@@ -0,0 +1,48 @@
+package flowgraph;
+
+/**
+ * Integral residual graph with long capacities.
+ */
+public class LongResidualGraph extends IntegralResidualGraph {
+    private long[] cap;
+    private long[] capacity;
+
+    /**
+     * @param edges Edges of the network, every capacity a non-negative integer below 2^53.
+     */
+    public LongResidualGraph(EdgeList edges) {
+        super(edges);
+        this.cap = new long[this.getArcsNum()];
+        this.capacity = new long[this.getArcsNum()];
+        for (int e = 0; e < edges.getEdgesNum(); e++) {
+            this.cap[this.getEdgeArc(e)] = (long) edges.getCapacity(e);
+            this.capacity[this.getEdgeArc(e)] = (long) edges.getCapacity(e);
+        }
+    }
+
+    @Override
+    public CapacityType getCapacityType() {
+        return CapacityType.LONG;
+    }
+
+    @Override
+    public long getResidualCapacity(int arc) {
+        return this.cap[arc];
+    }
+
+    @Override
+    public long getCapacity(int arc) {
+        return this.capacity[arc];
+    }
+
+    @Override
+    public void increaseFlow(int arc, long increment) {
+        this.cap[arc] -= increment;
+        this.cap[this.getReverse(arc)] += increment;
+    }
+
+    @Override
+    public void reset() {
+        System.arraycopy(this.capacity, 0, this.cap, 0, this.cap.length);
+    }
+}
@@ -0,0 +1,188 @@
+package flowgraph;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Residual graph whose arc structure, capacities and vertex names are read in place from a
+ * memory-mapped binary graph file (see BinaryGraphFile). Only the residual capacities live on
+ * the heap; every JVM that maps the same file shares its pages. The mapping is read-only, so
+ * the first setCapacity copies the capacities to the heap.
+ */
+public class MappedResidualGraph extends ResidualGraph {
+    private int vertices;
+    private IntBuffer start;
+    private IntBuffer head;
+    private IntBuffer rev;
+    private ByteBuffer backward;
+    private IntBuffer nameOffsets;
+    private ByteBuffer nameBytes;
+    // original capacity of every arc in the type of the file, zero for reverse arcs
+    private CapacityType type;
+    private ByteBuffer capacity;
+    // the capacities once one of them has been changed, null before
+    private double[] changed;
+    // residual capacity of every arc
+    private double[] cap;
+
+    // built on the first lookup by name
+    private HashMap<String, Integer> ids;
+
+    MappedResidualGraph(int source, int sink, CapacityType type, ByteBuffer capacity, IntBuffer start,
+                        IntBuffer head, IntBuffer rev, ByteBuffer backward, IntBuffer nameOffsets,
+                        ByteBuffer nameBytes) {
+        super(source, sink);
+        this.vertices = start.limit() - 1;
+        this.start = start;
+        this.head = head;
+        this.rev = rev;
+        this.backward = backward;
+        this.nameOffsets = nameOffsets;
+        this.nameBytes = nameBytes;
+        this.type = type;
+        this.capacity = capacity;
+        this.cap = new double[head.limit()];
+        this.reset();
+    }
+
+    @Override
+    public int getVerticesNum() {
+        return this.vertices;
+    }
+
+    @Override
+    public int getArcsNum() {
+        return this.head.limit();
+    }
+
+    @Override
+    public int getVertexId(String name) {
+        if (this.ids == null) {
+            HashMap<String, Integer> ids = new HashMap<>(2 * this.vertices);
+            for (int v = 0; v < this.vertices; v++) {
+                ids.put(this.getVertexName(v), v);
+            }
+            this.ids = ids;
+        }
+        Integer id = this.ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public String getVertexName(int vertex) {
+        int from = this.nameOffsets.get(vertex);
+        byte[] bytes = new byte[this.nameOffsets.get(vertex + 1) - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = this.nameBytes.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int getFirstArc(int vertex) {
+        return this.start.get(vertex);
+    }
+
+    @Override
+    public int getLastArc(int vertex) {
+        return this.start.get(vertex + 1);
+    }
+
+    @Override
+    public int getHead(int arc) {
+        return this.head.get(arc);
+    }
+
+    @Override
+    public int getTail(int arc) {
+        return this.head.get(this.rev.get(arc));
+    }
+
+    @Override
+    public int getReverse(int arc) {
+        return this.rev.get(arc);
+    }
+
+    @Override
+    public boolean isBackward(int arc) {
+        return this.backward.get(arc) != 0;
+    }
+
+    @Override
+    public double getResidualCapacity(int arc) {
+        return this.cap[arc];
+    }
+
+    @Override
+    public boolean isResidual(int arc) {
+        return this.cap[arc] > 0;
+    }
+
+    @Override
+    public double getCapacity(int arc) {
+        if (this.changed != null) {
+            return this.changed[arc];
+        }
+        switch (this.type) {
+            case INT:
+                return this.capacity.getInt(arc << 2);
+            case LONG:
+                return this.capacity.getLong(arc << 3);
+            default:
+                return this.capacity.getDouble(arc << 3);
+        }
+    }
+
+    @Override
+    public double setCapacity(int arc, double capacity) {
+        if (this.changed == null) {
+            double[] changed = new double[this.cap.length];
+            for (int a = 0; a < changed.length; a++) {
+                changed[a] = this.getCapacity(a);
+            }
+            this.changed = changed;
+        }
+        double flow = this.getFlow(arc);
+        double removed = Math.max(0, flow - capacity);
+        this.changed[arc] = capacity;
+        this.cap[arc] = capacity - (flow - removed);
+        this.cap[this.getReverse(arc)] = flow - removed;
+        return removed;
+    }
+
+    @Override
+    public double getFlow(int arc) {
+        return this.isBackward(arc) ? 0 : this.getCapacity(arc) - this.cap[arc];
+    }
+
+    @Override
+    public void increaseFlow(int arc, double increment) {
+        this.cap[arc] -= increment;
+        this.cap[this.rev.get(arc)] += increment;
+    }
+
+    @Override
+    public double getOutgoingCapacity(int vertex) {
+        double outgoing = 0;
+        for (int arc = this.getFirstArc(vertex); arc < this.getLastArc(vertex); arc++) {
+            outgoing += this.getCapacity(arc);
+        }
+        return outgoing;
+    }
+
+    @Override
+    public void reset() {
+        if (this.changed != null) {
+            System.arraycopy(this.changed, 0, this.cap, 0, this.cap.length);
+        } else if (this.type == CapacityType.DOUBLE) {
+            // a view of its own, so the position of the mapping is left alone
+            this.capacity.asDoubleBuffer().get(this.cap);
+        } else {
+            for (int arc = 0; arc < this.cap.length; arc++) {
+                this.cap[arc] = this.getCapacity(arc);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package flowgraph;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interns vertex names given as byte ranges, numbering them in order of first appearance.
+ * Open addressing with linear probing over an int table; the name bytes are copied once into
+ * a shared byte pool, so looking up a name that is already known allocates nothing.
+ */
+class NameTable {
+    // slot holds id + 1 of the name hashed there, 0 if empty
+    private int[] slots;
+    private int mask;
+
+    private byte[] pool = new byte[1 << 12];
+    private int poolSize;
+    private int[] offsets = new int[1 << 8];
+    private int[] lengths = new int[1 << 8];
+    private int[] hashes = new int[1 << 8];
+    private int size;
+
+    NameTable() {
+        this.slots = new int[1 << 10];
+        this.mask = this.slots.length - 1;
+    }
+
+    /**
+     * @return Number of distinct names.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Get the id of the name in buffer[from, to), adding the name if it is new.
+     * @return Id of the name.
+     */
+    int intern(ByteBuffer buffer, int from, int to) {
+        int hash = hash(buffer, from, to);
+        int length = to - from;
+        for (int slot = hash & this.mask; ; slot = (slot + 1) & this.mask) {
+            int id = this.slots[slot] - 1;
+            if (id < 0) {
+                id = this.add(buffer, from, length, hash);
+                this.slots[slot] = id + 1;
+                if (2 * this.size > this.slots.length) {
+                    this.rehash();
+                }
+                return id;
+            }
+            if (this.hashes[id] == hash && this.lengths[id] == length && this.matches(id, buffer, from)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @return The names as strings, indexed by id.
+     */
+    String[] getNames() {
+        String[] names = new String[this.size];
+        for (int id = 0; id < this.size; id++) {
+            names[id] = new String(this.pool, this.offsets[id], this.lengths[id], StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    private int add(ByteBuffer buffer, int from, int length, int hash) {
+        if (this.size == this.offsets.length) {
+            int capacity = 2 * this.size;
+            this.offsets = Arrays.copyOf(this.offsets, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+            this.hashes = Arrays.copyOf(this.hashes, capacity);
+        }
+        if (this.poolSize + length > this.pool.length) {
+            this.pool = Arrays.copyOf(this.pool, Math.max(2 * this.pool.length, this.poolSize + length));
+        }
+        for (int i = 0; i < length; i++) {
+            this.pool[this.poolSize + i] = buffer.get(from + i);
+        }
+        this.offsets[this.size] = this.poolSize;
+        this.lengths[this.size] = length;
+        this.hashes[this.size] = hash;
+        this.poolSize += length;
+        return this.size++;
+    }
+
+    private boolean matches(int id, ByteBuffer buffer, int from) {
+        int offset = this.offsets[id];
+        for (int i = 0; i < this.lengths[id]; i++) {
+            if (this.pool[offset + i] != buffer.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        this.slots = new int[2 * this.slots.length];
+        this.mask = this.slots.length - 1;
+        for (int id = 0; id < this.size; id++) {
+            int slot = this.hashes[id] & this.mask;
+            while (this.slots[slot] != 0) {
+                slot = (slot + 1) & this.mask;
+            }
+            this.slots[slot] = id + 1;
+        }
+    }
+
+    private static int hash(ByteBuffer buffer, int from, int to) {
+        int hash = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ buffer.get(i)) * 0x01000193;
+        }
+        // spread the high bits, the table is indexed by the low ones
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,318 @@
+package flowgraph;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Residual graph kept outside the Java heap, for networks with so many arcs that heap arrays
+ * would need an oversized heap and long garbage collection pauses.
+ *
+ * The CSR arrays of FlowNetwork and both capacity arrays live in direct buffers, split into
+ * chunks of 2^CHUNK_BITS entries since one buffer holds at most 2 GB. The heap only holds the
+ * vertex names and the chunk tables, so neither its size nor the collector's work grows with
+ * the number of arcs. The solvers see an ordinary ResidualGraph.
+ *
+ * The memory is released by close rather than by the garbage collector, and the graph must
+ * not be used afterwards. Direct memory is capped by -XX:MaxDirectMemorySize, which defaults
+ * to the maximum heap size, so large graphs need it raised.
+ */
+public class OffHeapResidualGraph extends ResidualGraph implements AutoCloseable {
+    private static final int CHUNK_BITS = 27;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    // frees a direct buffer at once, null if the JVM does not offer it
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // left to the garbage collector
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final int vertices;
+    private final int arcs;
+    private String[] names;
+
+    // built on the first lookup by name
+    private HashMap<String, Integer> ids;
+
+    private IntBuffer[] start;
+    private IntBuffer[] head;
+    private IntBuffer[] rev;
+    private ByteBuffer[] backward;
+    // residual capacity of every arc, and the original capacity (zero for reverse arcs)
+    private DoubleBuffer[] cap;
+    private DoubleBuffer[] capacity;
+
+    // every buffer allocated, for close
+    private ArrayList<ByteBuffer> buffers = new ArrayList<>();
+
+    /**
+     * Lay out the arcs of the edge list off the heap, in the same order as FlowNetwork, so arc
+     * ids are the same as in a ResidualGraph of the same edges. Only the vertex names are kept
+     * from the edge list.
+     * @param edges Edges of the network.
+     * @throws IllegalArgumentException if there are more arcs than int ids
+     */
+    public OffHeapResidualGraph(EdgeList edges) {
+        super(edges.getVertexId("s"), edges.getVertexId("t"));
+        int n = edges.getVerticesNum();
+        int m = edges.getEdgesNum();
+        if (2L * m > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many edges for int arc ids: " + m);
+        }
+        this.vertices = n;
+        this.arcs = 2 * m;
+        this.names = new String[n];
+        for (int v = 0; v < n; v++) {
+            this.names[v] = edges.getName(v);
+        }
+
+        this.start = this.ints(n + 1);
+        this.head = this.ints(this.arcs);
+        this.rev = this.ints(this.arcs);
+        this.backward = this.bytes(this.arcs);
+        this.cap = this.doubles(this.arcs);
+        this.capacity = this.doubles(this.arcs);
+
+        // degrees, turned into the first arc of every vertex; next is the one transient O(n) array
+        int[] next = new int[n];
+        for (int e = 0; e < m; e++) {
+            next[edges.getFrom(e)]++;
+            next[edges.getTo(e)]++;
+        }
+        int first = 0;
+        for (int v = 0; v < n; v++) {
+            int degree = next[v];
+            set(this.start, v, first);
+            next[v] = first;
+            first += degree;
+        }
+        set(this.start, n, first);
+
+        for (int e = 0; e < m; e++) {
+            int from = edges.getFrom(e);
+            int to = edges.getTo(e);
+            int forwardArc = next[from]++;
+            int backwardArc = next[to]++;
+
+            set(this.head, forwardArc, to);
+            set(this.rev, forwardArc, backwardArc);
+            set(this.head, backwardArc, from);
+            set(this.rev, backwardArc, forwardArc);
+            this.backward[backwardArc >>> CHUNK_BITS].put(backwardArc & CHUNK_MASK, (byte) 1);
+            set(this.cap, forwardArc, edges.getCapacity(e));
+            set(this.capacity, forwardArc, edges.getCapacity(e));
+        }
+    }
+
+    /**
+     * Release the off-heap memory. Further use of the graph fails. Closing twice does nothing.
+     */
+    @Override
+    public void close() {
+        if (this.buffers == null) {
+            return;
+        }
+        // drop the views first, so nothing can reach the memory once it is freed
+        this.start = this.head = this.rev = null;
+        this.backward = null;
+        this.cap = this.capacity = null;
+        ArrayList<ByteBuffer> buffers = this.buffers;
+        this.buffers = null;
+        if (INVOKE_CLEANER != null) {
+            for (ByteBuffer buffer : buffers) {
+                try {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                } catch (ReflectiveOperationException e) {
+                    // the collector frees the buffer instead
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getVerticesNum() {
+        return this.vertices;
+    }
+
+    @Override
+    public int getArcsNum() {
+        return this.arcs;
+    }
+
+    @Override
+    public int getVertexId(String name) {
+        if (this.ids == null) {
+            HashMap<String, Integer> ids = new HashMap<>(2 * this.vertices);
+            for (int v = 0; v < this.vertices; v++) {
+                ids.put(this.names[v], v);
+            }
+            this.ids = ids;
+        }
+        Integer id = this.ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public String getVertexName(int vertex) {
+        return this.names[vertex];
+    }
+
+    @Override
+    public int getFirstArc(int vertex) {
+        return get(this.start, vertex);
+    }
+
+    @Override
+    public int getLastArc(int vertex) {
+        return get(this.start, vertex + 1);
+    }
+
+    @Override
+    public int getHead(int arc) {
+        return get(this.head, arc);
+    }
+
+    @Override
+    public int getTail(int arc) {
+        return get(this.head, get(this.rev, arc));
+    }
+
+    @Override
+    public int getReverse(int arc) {
+        return get(this.rev, arc);
+    }
+
+    @Override
+    public boolean isBackward(int arc) {
+        return this.backward[arc >>> CHUNK_BITS].get(arc & CHUNK_MASK) != 0;
+    }
+
+    @Override
+    public double getResidualCapacity(int arc) {
+        return get(this.cap, arc);
+    }
+
+    @Override
+    public boolean isResidual(int arc) {
+        return get(this.cap, arc) > 0;
+    }
+
+    @Override
+    public double getCapacity(int arc) {
+        return get(this.capacity, arc);
+    }
+
+    @Override
+    public double setCapacity(int arc, double capacity) {
+        double flow = this.getFlow(arc);
+        double removed = Math.max(0, flow - capacity);
+        set(this.capacity, arc, capacity);
+        set(this.cap, arc, capacity - (flow - removed));
+        set(this.cap, this.getReverse(arc), flow - removed);
+        return removed;
+    }
+
+    @Override
+    public double getFlow(int arc) {
+        return this.isBackward(arc) ? 0 : get(this.capacity, arc) - get(this.cap, arc);
+    }
+
+    @Override
+    public void increaseFlow(int arc, double increment) {
+        DoubleBuffer chunk = this.cap[arc >>> CHUNK_BITS];
+        chunk.put(arc & CHUNK_MASK, chunk.get(arc & CHUNK_MASK) - increment);
+        int reverse = get(this.rev, arc);
+        chunk = this.cap[reverse >>> CHUNK_BITS];
+        chunk.put(reverse & CHUNK_MASK, chunk.get(reverse & CHUNK_MASK) + increment);
+    }
+
+    @Override
+    public double getOutgoingCapacity(int vertex) {
+        double outgoing = 0;
+        for (int arc = this.getFirstArc(vertex); arc < this.getLastArc(vertex); arc++) {
+            outgoing += get(this.capacity, arc);
+        }
+        return outgoing;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < this.cap.length; i++) {
+            // duplicates, so the positions of the chunks are left alone
+            this.cap[i].duplicate().put(this.capacity[i].duplicate());
+        }
+    }
+
+    private static int get(IntBuffer[] chunks, int index) {
+        return chunks[index >>> CHUNK_BITS].get(index & CHUNK_MASK);
+    }
+
+    private static void set(IntBuffer[] chunks, int index, int value) {
+        chunks[index >>> CHUNK_BITS].put(index & CHUNK_MASK, value);
+    }
+
+    private static double get(DoubleBuffer[] chunks, int index) {
+        return chunks[index >>> CHUNK_BITS].get(index & CHUNK_MASK);
+    }
+
+    private static void set(DoubleBuffer[] chunks, int index, double value) {
+        chunks[index >>> CHUNK_BITS].put(index & CHUNK_MASK, value);
+    }
+
+    /**
+     * Allocate zeroed direct memory for count entries of the given size, in chunks.
+     */
+    private ByteBuffer[] allocate(int count, int size) {
+        int chunks = Math.max(1, (int) ((count + (long) CHUNK_MASK) >>> CHUNK_BITS));
+        ByteBuffer[] allocated = new ByteBuffer[chunks];
+        for (int i = 0; i < chunks; i++) {
+            int entries = Math.min(CHUNK_MASK + 1, count - (i << CHUNK_BITS));
+            allocated[i] = ByteBuffer.allocateDirect(Math.max(0, entries) * size).order(ByteOrder.nativeOrder());
+            this.buffers.add(allocated[i]);
+        }
+        return allocated;
+    }
+
+    private IntBuffer[] ints(int count) {
+        ByteBuffer[] bytes = this.allocate(count, Integer.BYTES);
+        IntBuffer[] chunks = new IntBuffer[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            chunks[i] = bytes[i].asIntBuffer();
+        }
+        return chunks;
+    }
+
+    private DoubleBuffer[] doubles(int count) {
+        ByteBuffer[] bytes = this.allocate(count, Double.BYTES);
+        DoubleBuffer[] chunks = new DoubleBuffer[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            chunks[i] = bytes[i].asDoubleBuffer();
+        }
+        return chunks;
+    }
+
+    private ByteBuffer[] bytes(int count) {
+        return this.allocate(count, Byte.BYTES);
+    }
+}
@@ -0,0 +1,143 @@
+package flowgraph;
+
+import simplegraph.*;
+
+/**
+ * Residual graph with double capacities.
+ *
+ * Every forward arc is paired with a preallocated reverse arc, so pushing flow never
+ * allocates: it only moves residual capacity between the two arcs of the pair.
+ */
+public class ResidualGraph extends FlowNetwork {
+    // residual capacity of every arc, and the original capacity (zero for reverse arcs)
+    private double[] cap;
+    private double[] capacity;
+
+    /**
+     * Creates a residual graph from the simple graph.
+     *
+     * @param graph Simple graph from which to construct the residual graph
+     */
+    public ResidualGraph(SimpleGraph graph) {
+        this(EdgeList.of(graph));
+    }
+
+    /**
+     * Creates a residual graph from the edge list.
+     *
+     * @param edges Edges of the network.
+     */
+    public ResidualGraph(EdgeList edges) {
+        super(edges);
+        this.cap = new double[this.getArcsNum()];
+        this.capacity = new double[this.getArcsNum()];
+        for (int e = 0; e < edges.getEdgesNum(); e++) {
+            this.cap[this.getEdgeArc(e)] = edges.getCapacity(e);
+            this.capacity[this.getEdgeArc(e)] = edges.getCapacity(e);
+        }
+    }
+
+    /**
+     * For subclasses that keep the arc structure and the capacities elsewhere, and override
+     * every method that reads or writes them.
+     * @param source Id of the source vertex, or -1.
+     * @param sink Id of the sink vertex, or -1.
+     */
+    protected ResidualGraph(int source, int sink) {
+        super(source, sink);
+    }
+
+    /**
+     * Get residual capacity of the arc.
+     * For forward arc, residual capacity = capacity - flow.
+     * For reverse arc, residual capacity = flow in corresponding forward arc.
+     * @param arc Id of the arc.
+     * @return Residual capacity of the arc.
+     */
+    public double getResidualCapacity(int arc) {
+        return this.cap[arc];
+    }
+
+    @Override
+    public boolean isResidual(int arc) {
+        return this.cap[arc] > 0;
+    }
+
+    /**
+     * @param arc Id of the arc.
+     * @return Capacity of the input edge for forward arcs, zero for reverse arcs.
+     */
+    public double getCapacity(int arc) {
+        return this.capacity[arc];
+    }
+
+    /**
+     * Change the capacity of a forward arc, keeping its flow as far as the new capacity allows.
+     * Flow above the new capacity is taken off the arc, which leaves the tail of the arc with
+     * that much excess and the head with that much deficit for the caller to repair.
+     * @param arc Id of a forward arc.
+     * @param capacity New capacity of the arc.
+     * @return Flow taken off the arc.
+     */
+    public double setCapacity(int arc, double capacity) {
+        double flow = this.getFlow(arc);
+        double removed = Math.max(0, flow - capacity);
+        this.capacity[arc] = capacity;
+        this.cap[arc] = capacity - (flow - removed);
+        this.cap[this.getReverse(arc)] = flow - removed;
+        return removed;
+    }
+
+    /**
+     * Get amount of flow on the arc. Flow on reverse arcs is always zero.
+     * @param arc Id of the arc.
+     * @return Flow on the arc.
+     */
+    public double getFlow(int arc) {
+        return this.isBackward(arc) ? 0 : this.capacity[arc] - this.cap[arc];
+    }
+
+    /**
+     * Push given amount of flow along the arc. Pushing along a reverse arc cancels flow
+     * on its forward arc. The increment must not exceed the residual capacity.
+     * @param arc Id of the arc.
+     * @param increment Amount of flow to push.
+     */
+    public void increaseFlow(int arc, double increment) {
+        this.cap[arc] -= increment;
+        this.cap[this.getReverse(arc)] += increment;
+    }
+
+    /**
+     * @param vertex Id of the vertex.
+     * @return The sum of outgoing capacity of the vertex.
+     */
+    public double getOutgoingCapacity(int vertex) {
+        double outgoing = 0;
+        for (int arc = this.getFirstArc(vertex); arc < this.getLastArc(vertex); arc++) {
+            outgoing += this.capacity[arc];
+        }
+        return outgoing;
+    }
+
+    /**
+     * Get the flow of the graph, the net flow out of the source, or out of all sources together
+     * @return The flow of the graph
+     */
+    public double getGraphFlow() {
+        double flow = 0;
+        for (int source : this.getSources()) {
+            for (int arc = this.getFirstArc(source); arc < this.getLastArc(source); arc++) {
+                // flow on edges into the source counts against the flow out of it, so flow
+                // between two sources cancels out
+                flow += this.isBackward(arc) ? -this.getFlow(this.getReverse(arc)) : this.getFlow(arc);
+            }
+        }
+        return flow;
+    }
+
+    @Override
+    public void reset() {
+        System.arraycopy(this.capacity, 0, this.cap, 0, this.cap.length);
+    }
+}
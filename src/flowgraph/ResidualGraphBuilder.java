@@ -0,0 +1,115 @@
+package flowgraph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Collects streamed edges into primitive arrays and lays them out as a residual graph, so no
+ * SimpleGraph is ever built. Vertices are numbered in order of first appearance, as by
+ * EdgeList.of and EdgeListReader.
+ */
+public class ResidualGraphBuilder implements EdgeSink {
+    private HashMap<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[16];
+    private int[] from = new int[16];
+    private int[] to = new int[16];
+    private double[] capacities = new double[16];
+    // allocated by the first edge with a cost
+    private long[] costs;
+    private int edges;
+
+    @Override
+    public void addEdge(String tail, String head, double capacity) {
+        this.addEdge(this.addVertex(tail), this.addVertex(head), capacity);
+    }
+
+    /**
+     * Add an edge between vertices already numbered by addVertex, for producers that keep ids.
+     * @param tail Id of the vertex the edge leaves.
+     * @param head Id of the vertex the edge enters.
+     * @param capacity Capacity of the edge.
+     */
+    public void addEdge(int tail, int head, double capacity) {
+        if (this.edges == this.from.length) {
+            int length = (int) Math.min(2L * this.edges, Integer.MAX_VALUE - 8);
+            this.from = Arrays.copyOf(this.from, length);
+            this.to = Arrays.copyOf(this.to, length);
+            this.capacities = Arrays.copyOf(this.capacities, length);
+            if (this.costs != null) {
+                this.costs = Arrays.copyOf(this.costs, length);
+            }
+        }
+        this.from[this.edges] = tail;
+        this.to[this.edges] = head;
+        this.capacities[this.edges] = capacity;
+        this.edges++;
+    }
+
+    /**
+     * Add an edge with a cost per unit of flow. Edges added without one cost nothing.
+     * @param tail Name of the vertex the edge leaves.
+     * @param head Name of the vertex the edge enters.
+     * @param capacity Capacity of the edge.
+     * @param cost Cost of the edge.
+     */
+    public void addEdge(String tail, String head, double capacity, long cost) {
+        this.addEdge(this.addVertex(tail), this.addVertex(head), capacity, cost);
+    }
+
+    /**
+     * Add an edge with a cost between vertices already numbered by addVertex.
+     * @param tail Id of the vertex the edge leaves.
+     * @param head Id of the vertex the edge enters.
+     * @param capacity Capacity of the edge.
+     * @param cost Cost of the edge.
+     */
+    public void addEdge(int tail, int head, double capacity, long cost) {
+        this.addEdge(tail, head, capacity);
+        if (this.costs == null) {
+            this.costs = new long[this.from.length];
+        }
+        this.costs[this.edges - 1] = cost;
+    }
+
+    /**
+     * @param name Name of the vertex.
+     * @return Id of the vertex, which is new if the name was not seen before.
+     */
+    public int addVertex(String name) {
+        Integer id = this.ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        int vertices = this.ids.size();
+        if (vertices == this.names.length) {
+            this.names = Arrays.copyOf(this.names, 2 * vertices);
+        }
+        this.names[vertices] = name;
+        this.ids.put(name, vertices);
+        return vertices;
+    }
+
+    /**
+     * @return The edges added so far.
+     */
+    public EdgeList toEdgeList() {
+        return new EdgeList(Arrays.copyOf(this.names, this.ids.size()), Arrays.copyOf(this.from, this.edges),
+                Arrays.copyOf(this.to, this.edges), Arrays.copyOf(this.capacities, this.edges),
+                this.costs == null ? null : Arrays.copyOf(this.costs, this.edges));
+    }
+
+    /**
+     * @return A residual graph with double capacities.
+     */
+    public ResidualGraph build() {
+        return new ResidualGraph(this.toEdgeList());
+    }
+
+    /**
+     * @return A residual graph in the narrowest integral type that fits the capacities.
+     * @throws IllegalArgumentException if some capacity is not a non-negative integer
+     */
+    public IntegralResidualGraph buildIntegral() {
+        return IntegralResidualGraph.create(this.toEdgeList());
+    }
+}
@@ -1,40 +1,66 @@
 package flowgraph;
 
-import java.util.HashSet;
-import java.util.LinkedList;
-
 public class VertexQueue {
-    private LinkedList<NetworkVertex> verticesList;
-    private HashSet<String> verticesSet;
+    private int[] vertices;
+    private boolean[] queued;
+    private int first;
+    private int size;
+    // its sources and sinks are never queued
+    private ResidualGraph graph;
 
-    public VertexQueue()
+    /**
+     * @param graph the graph whose vertices are queued, sources and sinks are never queued
+     */
+    public VertexQueue(ResidualGraph graph)
     {
-        this.verticesList = new LinkedList<NetworkVertex>();
-        this.verticesSet = new HashSet<String>();
+        this.vertices = new int[graph.getVerticesNum()];
+        this.queued = new boolean[graph.getVerticesNum()];
+        this.graph = graph;
+    }
+
+    /**
+     * Empty the queue and retarget it to another graph, keeping the arrays if they are large enough.
+     * @param graph the graph whose vertices are queued from now on
+     */
+    public void reset(ResidualGraph graph) {
+        if (this.vertices.length < graph.getVerticesNum()) {
+            this.vertices = new int[graph.getVerticesNum()];
+            this.queued = new boolean[graph.getVerticesNum()];
+        } else {
+            while (!this.isEmpty()) {
+                this.pop();
+            }
+        }
+        this.first = 0;
+        this.size = 0;
+        this.graph = graph;
     }
 
     /**
      * @param vertex the vertex you want to add to the queue
      */
-    public void add(NetworkVertex vertex) {
-        if (vertex.getName().equals("s") || (vertex.getName().equals("t"))) {
+    public void add(int vertex) {
+        if (this.queued[vertex] || this.graph.isTerminal(vertex)) {
             return;
         }
-        if (verticesSet.add(vertex.getName())) {
-            verticesList.addLast(vertex);
-        }
+        this.queued[vertex] = true;
+        int last = this.first + this.size;
+        this.vertices[last < this.vertices.length ? last : last - this.vertices.length] = vertex;
+        this.size++;
     }
 
     /**
      * @return a vertex popped from the queue
      */
-    public NetworkVertex pop() {
-        NetworkVertex vertex = verticesList.remove();
-        verticesSet.remove(vertex.getName());
+    public int pop() {
+        int vertex = this.vertices[this.first];
+        this.queued[vertex] = false;
+        this.first = this.first + 1 < this.vertices.length ? this.first + 1 : 0;
+        this.size--;
         return vertex;
     }
 
-    public Boolean isEmpty() {
-        return verticesList.isEmpty();
+    public boolean isEmpty() {
+        return this.size == 0;
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,8 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.util.*;
 
+import flowgraph.EdgeSink;
+
 public class RandomGraph {
 	
 	private static final String NL = "\n";
@@ -54,13 +56,34 @@ public class RandomGraph {
 	 *			to a directed edge: the tail, the head, and the capacity.
 	 */
 	public static StringBuffer graphBuilder(int v, int e, int min, int max){
+		StringBuffer bfr = new StringBuffer();
+		graphBuilder(v, e, min, max, (tail, head, c) -> bfr.append(tail+" "+head+" "+(int)c+NL));
+		return bfr;
+	}
+
+	/**
+	 * This method streams the edges of a random graph to a sink, such as a
+	 * ResidualGraphBuilder, without writing them out as text.
+	 * @param v The number of vertices in the graph
+	 * @param e The number of edges leaving each vertice
+	 * @param min The lowerbound on the capacity value of each edge
+	 * @param max The upperbound on the capacity value of each edge
+	 * @param sink Receives each directed edge: the tail, the head, and the capacity.
+	 */
+	public static void graphBuilder(int v, int e, int min, int max, EdgeSink sink){
+		graphBuilder(v, e, min, max, new Random(), sink);
+	}
+
+	/**
+	 * As above, drawing from the given generator so that a seeded one gives the same graph every time.
+	 * @param gen The random number generator
+	 */
+	public static void graphBuilder(int v, int e, int min, int max, Random gen, EdgeSink sink){
 		int i;
 		int j;
 		int head;
 		int c;
 		SortedSet s;
-		Random gen = new Random();
-		StringBuffer bfr = new StringBuffer();
 		
 		//Add distinguished node s
 		j = 1;
@@ -70,7 +93,7 @@ public class RandomGraph {
 			if(!s.contains(head)){
 				s.add(head);
 				c = min + gen.nextInt(max - min + 1);
-				bfr.append("s"+" "+"v"+head+" "+c+NL);	
+				sink.addEdge("s", "v"+head, c);	
 				j++;
 			}
 		}
@@ -83,7 +106,7 @@ public class RandomGraph {
 			if(!s.contains(tail)){
 				s.add(tail);
 				c = min + gen.nextInt(max - min + 1);
-				bfr.append("v"+tail+" "+"t"+" "+c+NL);
+				sink.addEdge("v"+tail, "t", c);
 				j++;
 			}
 		}
@@ -98,12 +121,11 @@ public class RandomGraph {
 				if(!s.contains(head)){
 					s.add(head);
 					c = min + gen.nextInt(max - min + 1);
-					bfr.append("v"+i+" "+"v"+head+" "+c+NL);
+					sink.addEdge("v"+i, "v"+head, c);
 					j++;
 				}
 			}
 		}
-		return bfr;
 	}
 	
 
@@ -0,0 +1,146 @@
+package maxflow;
+
+import flowgraph.*;
+import simplegraph.SimpleGraph;
+
+/**
+ * Fast path for matching-shaped networks, where every edge goes from the source to a left
+ * vertex, from a left vertex to a right vertex or from a right vertex to the sink.
+ *
+ * When the middle edges all have capacity 1 and the terminal edges integral capacities the
+ * instance is a degree-constrained matching and is solved by Hopcroft-Karp. Other bipartite
+ * instances go to a push-relabel that discharges the two sides in alternating phases, and
+ * anything that is not bipartite to Dinic. In every case the edge flows are left in the graph.
+ */
+public class BipartiteMaxFlow implements MaxFlowSolver {
+    static final byte OTHER = 0;
+    static final byte LEFT = 1;
+    static final byte RIGHT = 2;
+
+    // created on first use and kept, so their arrays are reused by later solves
+    private Dinic dinic;
+    private HopcroftKarp matching;
+    private BipartitePreflowPush preflowPush;
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
+    public double findMaxFlow(SimpleGraph simpleGraph) throws Exception {
+        return findMaxFlow(new ResidualGraph(simpleGraph));
+    }
+
+    public double findMaxFlow(ResidualGraph graph) throws Exception {
+        MaxFlowSolvers.requireSingleTerminals(graph, "BipartiteMaxFlow");
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+        byte[] side = partition(graph);
+        double flow;
+        if (side == null) {
+            if (dinic == null) {
+                dinic = new Dinic();
+            }
+            flow = dinic.findMaxFlow(graph);
+            if (SolverMetrics.ENABLED) {
+                metrics.add(dinic.getMetrics());
+            }
+        } else if (isUnitMatching(graph, side)) {
+            if (matching == null) {
+                matching = new HopcroftKarp();
+            }
+            flow = matching.findMaxFlow(graph, side);
+            if (SolverMetrics.ENABLED) {
+                metrics.add(matching.getMetrics());
+            }
+        } else {
+            if (preflowPush == null) {
+                preflowPush = new BipartitePreflowPush();
+            }
+            flow = preflowPush.findMaxFlow(graph, side);
+            if (SolverMetrics.ENABLED) {
+                metrics.add(preflowPush.getMetrics());
+            }
+        }
+        return metrics.finish("Bipartite", flow);
+    }
+
+    /**
+     * Solve and return the minimum cut found by a search from the source over the final flow,
+     * whichever algorithm the network went to.
+     */
+    public MaxFlowResult solve(ResidualGraph graph) throws Exception {
+        return MaxFlowResult.ofResidual(graph, findMaxFlow(graph));
+    }
+
+    /**
+     * @return Work done by the last solve in whichever algorithm it went to, all zero unless
+     *         SolverMetrics.ENABLED.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Split the vertices into the heads of the source edges and the tails of the sink edges.
+     * @return the side of every vertex, or null if some edge does not fit the s-left-right-t shape
+     */
+    static byte[] partition(ResidualGraph graph) {
+        int source = graph.getSource();
+        int sink = graph.getSink();
+        if (source < 0 || sink < 0) {
+            return null;
+        }
+
+        byte[] side = new byte[graph.getVerticesNum()];
+        for (int arc = graph.getFirstArc(source); arc < graph.getLastArc(source); arc++) {
+            if (!graph.isBackward(arc)) {
+                side[graph.getHead(arc)] = LEFT;
+            }
+        }
+        for (int arc = graph.getFirstArc(sink); arc < graph.getLastArc(sink); arc++) {
+            if (graph.isBackward(arc)) {
+                int tail = graph.getHead(arc);
+                if (side[tail] == LEFT || tail == source) {
+                    return null;
+                }
+                side[tail] = RIGHT;
+            }
+        }
+        if (side[source] != OTHER || side[sink] != OTHER) {
+            return null;
+        }
+
+        for (int v = 0; v < graph.getVerticesNum(); v++) {
+            for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                if (graph.isBackward(arc)) {
+                    continue;
+                }
+                int head = graph.getHead(arc);
+                boolean fits = (v == source && side[head] == LEFT)
+                        || (side[v] == LEFT && side[head] == RIGHT)
+                        || (side[v] == RIGHT && head == sink);
+                if (!fits) {
+                    return null;
+                }
+            }
+        }
+        return side;
+    }
+
+    /**
+     * @return whether every middle edge has capacity 1 and every terminal edge an integral capacity
+     */
+    static boolean isUnitMatching(ResidualGraph graph, byte[] side) {
+        for (int v = 0; v < graph.getVerticesNum(); v++) {
+            for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                if (graph.isBackward(arc)) {
+                    continue;
+                }
+                double capacity = graph.getCapacity(arc);
+                if (side[v] == LEFT ? capacity != 1 : capacity != Math.rint(capacity)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
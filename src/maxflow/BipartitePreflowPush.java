@@ -0,0 +1,233 @@
+package maxflow;
+
+import flowgraph.*;
+
+import java.util.Arrays;
+
+/**
+ * Push-relabel specialized to matching-shaped networks. The active vertices of the two sides
+ * are kept in separate queues and discharged in alternating phases, all active left vertices
+ * and then all active right vertices, so that excess pushed across the middle edges in one
+ * phase is handled in bulk by the next. Heights are exact distances after the global relabel
+ * that runs first and whenever the relabel work since the previous one exceeds ALPHA * n + m / 2.
+ */
+public class BipartitePreflowPush {
+    private static final int ALPHA = 6;
+
+    private ResidualGraph graph;
+    private byte[] side;
+    private int n;
+    private int source;
+    private int sink;
+
+    private double[] excess;
+    private int[] height;
+    private int[] currentArc;
+    private VertexQueue leftQueue;
+    private VertexQueue rightQueue;
+    // breadth first search order of the global relabel
+    private int[] queue;
+    private long work;
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
+    /**
+     * @param graph a matching-shaped residual graph without flow
+     * @param side the sides found by BipartiteMaxFlow.partition
+     * @return the value of the maximum flow
+     */
+    double findMaxFlow(ResidualGraph graph, byte[] side) {
+        this.graph = graph;
+        this.side = side;
+        n = graph.getVerticesNum();
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+        source = graph.getSource();
+        sink = graph.getSink();
+
+        // kept from the last solve if large enough, the global relabel sets the heights
+        if (excess == null || excess.length < n) {
+            excess = new double[n];
+            height = new int[n];
+            currentArc = new int[n];
+            queue = new int[n];
+            leftQueue = new VertexQueue(graph);
+            rightQueue = new VertexQueue(graph);
+        } else {
+            Arrays.fill(excess, 0, n, 0);
+            leftQueue.reset(graph);
+            rightQueue.reset(graph);
+        }
+
+        // start with a preflow saturating every edge out of the source
+        for (int arc = graph.getFirstArc(source); arc < graph.getLastArc(source); arc++) {
+            if (graph.isBackward(arc)) {
+                continue;
+            }
+            double flow = graph.getResidualCapacity(arc);
+            graph.increaseFlow(arc, flow);
+            excess[source] -= flow;
+            excess[graph.getHead(arc)] += flow;
+        }
+
+        long threshold = ALPHA * (long) n + graph.getArcsNum() / 2;
+        globalRelabel();
+        while (!leftQueue.isEmpty() || !rightQueue.isEmpty()) {
+            if (SolverMetrics.ENABLED) {
+                metrics.phases++;
+            }
+            while (!leftQueue.isEmpty() && work <= threshold) {
+                discharge(leftQueue.pop());
+            }
+            while (!rightQueue.isEmpty() && work <= threshold) {
+                discharge(rightQueue.pop());
+            }
+            if (work > threshold) {
+                globalRelabel();
+            }
+        }
+        return graph.getGraphFlow();
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED. A phase is
+     *         one round of discharging both sides.
+     */
+    SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Push the excess of the vertex along admissible arcs, relabeling whenever the current
+     * arc runs off the end of the adjacency list, until the excess is gone.
+     */
+    private void discharge(int vertex) {
+        int last = graph.getLastArc(vertex);
+        while (excess[vertex] > 0) {
+            int arc = currentArc[vertex];
+            int start = arc;
+            for (; arc < last; arc++) {
+                int head = graph.getHead(arc);
+                double residual = graph.getResidualCapacity(arc);
+                if (residual > 0 && height[head] == height[vertex] - 1) {
+                    double flow = Math.min(residual, excess[vertex]);
+                    if (SolverMetrics.ENABLED) {
+                        metrics.pushes++;
+                        if (flow == residual) {
+                            metrics.saturatingPushes++;
+                        }
+                    }
+                    graph.increaseFlow(arc, flow);
+                    excess[vertex] -= flow;
+                    excess[head] += flow;
+                    activate(head);
+                    if (excess[vertex] == 0) {
+                        break;
+                    }
+                }
+            }
+            currentArc[vertex] = arc;
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += Math.min(arc + 1, last) - start;
+            }
+            if (excess[vertex] > 0 && !relabel(vertex)) {
+                // the vertex cannot reach the source, cannot happen for a valid preflow
+                return;
+            }
+        }
+    }
+
+    /**
+     * Raise the vertex to one above its lowest residual neighbour.
+     * @return false if the vertex has no residual arc to a labeled vertex
+     */
+    private boolean relabel(int vertex) {
+        int newHeight = 2 * n;
+        int minArc = -1;
+        int first = graph.getFirstArc(vertex);
+        int last = graph.getLastArc(vertex);
+        for (int arc = first; arc < last; arc++) {
+            if (graph.getResidualCapacity(arc) > 0 && height[graph.getHead(arc)] + 1 < newHeight) {
+                newHeight = height[graph.getHead(arc)] + 1;
+                minArc = arc;
+            }
+        }
+        work += ALPHA + last - first;
+        if (SolverMetrics.ENABLED) {
+            metrics.relabels++;
+            metrics.arcsScanned += last - first;
+        }
+        if (minArc < 0) {
+            return false;
+        }
+        height[vertex] = newHeight;
+        currentArc[vertex] = minArc;
+        return true;
+    }
+
+    /**
+     * Recompute exact heights, the distance to the sink or n plus the distance to the source,
+     * and queue every vertex with excess again.
+     */
+    private void globalRelabel() {
+        if (SolverMetrics.ENABLED) {
+            metrics.globalRelabels++;
+        }
+        int unlabeled = 2 * n;
+        for (int v = 0; v < n; v++) {
+            height[v] = unlabeled;
+            currentArc[v] = graph.getFirstArc(v);
+        }
+        int last = 0;
+        height[sink] = 0;
+        height[source] = n;
+        queue[last++] = sink;
+        last = backwardBfs(queue, 0, last);
+        queue[last++] = source;
+        backwardBfs(queue, last - 1, last);
+
+        for (int v = 0; v < n; v++) {
+            if (height[v] < unlabeled) {
+                activate(v);
+            }
+        }
+        work = 0;
+    }
+
+    /**
+     * Label unlabeled vertices by their residual distance to the vertices in the queue.
+     * @return the new end of the queue
+     */
+    private int backwardBfs(int[] queue, int first, int last) {
+        int unlabeled = 2 * n;
+        for (; first < last; first++) {
+            int v = queue[first];
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += graph.getLastArc(v) - graph.getFirstArc(v);
+            }
+            for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                int w = graph.getHead(arc);
+                if (height[w] == unlabeled && graph.getResidualCapacity(graph.getReverse(arc)) > 0) {
+                    height[w] = height[v] + 1;
+                    queue[last++] = w;
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Queue the vertex on its side if it has excess.
+     */
+    private void activate(int vertex) {
+        if (excess[vertex] <= 0) {
+            return;
+        }
+        if (side[vertex] == BipartiteMaxFlow.LEFT) {
+            leftQueue.add(vertex);
+        } else if (side[vertex] == BipartiteMaxFlow.RIGHT) {
+            rightQueue.add(vertex);
+        }
+    }
+}
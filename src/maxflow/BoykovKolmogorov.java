@@ -0,0 +1,373 @@
+package maxflow;
+
+import flowgraph.*;
+import simplegraph.SimpleGraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The Boykov-Kolmogorov algorithm. Two search trees are grown, one from the source along
+ * residual arcs and one towards the sink along reversed residual arcs. When an arc joins
+ * them the path through it is augmented, the vertices cut off by saturated tree arcs become
+ * orphans, and the orphans are re-attached to their tree or freed. The trees are never
+ * rebuilt from scratch, which makes the algorithm fast on grid-like graphs with many short
+ * source-sink paths.
+ *
+ * Orphans look for the new parent closest to the root, with the distance estimates cached
+ * per vertex and stamped with the number of the augmentation they were computed in.
+ */
+public class BoykovKolmogorov implements MaxFlowSolver {
+    private static final int FREE = 0;
+    private static final int SOURCE_TREE = 1;
+    private static final int SINK_TREE = 2;
+
+    // parent arc markers of the tree roots and of orphans
+    private static final int TERMINAL = -1;
+    private static final int ORPHAN = -2;
+
+    private ResidualGraph graph;
+    private int n;
+    private int source;
+    private int sink;
+
+    // which tree a vertex belongs to, and its tree arc: the arc from its parent in the
+    // source tree, or the arc to its parent in the sink tree
+    private int[] tree;
+    private int[] parentArc;
+
+    // distance to the root, valid for the augmentation numbered stamp[v]
+    private int[] dist;
+    private int[] stamp;
+    private int time;
+
+    // active vertices as a ring buffer, a vertex is in it at most once
+    private int[] active;
+    private boolean[] queued;
+    private int activeFirst;
+    private int activeSize;
+
+    // orphans as a ring buffer
+    private int[] orphans;
+    private int orphanFirst;
+    private int orphanSize;
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
+    public double findMaxFlow(SimpleGraph simpleGraph) throws Exception {
+        return findMaxFlow(new ResidualGraph(simpleGraph));
+    }
+
+    public double findMaxFlow(ResidualGraph graph) throws Exception {
+        MaxFlowSolvers.requireSingleTerminals(graph, "BoykovKolmogorov");
+        this.graph = graph;
+        n = graph.getVerticesNum();
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+        source = graph.getSource();
+        sink = graph.getSink();
+        if (source < 0 || sink < 0) {
+            return graph.getGraphFlow();
+        }
+
+        if (tree == null || tree.length < n) {
+            tree = new int[n];
+            parentArc = new int[n];
+            dist = new int[n];
+            stamp = new int[n];
+            active = new int[n];
+            queued = new boolean[n];
+            orphans = new int[n];
+        } else {
+            // start from the state of fresh arrays, the ring buffers only use the first n entries
+            Arrays.fill(tree, 0, n, FREE);
+            Arrays.fill(dist, 0, n, 0);
+            Arrays.fill(stamp, 0, n, 0);
+            Arrays.fill(queued, 0, n, false);
+        }
+        time = 0;
+        activeFirst = activeSize = 0;
+        orphanFirst = orphanSize = 0;
+
+        tree[source] = SOURCE_TREE;
+        tree[sink] = SINK_TREE;
+        parentArc[source] = parentArc[sink] = TERMINAL;
+        addActive(source);
+        addActive(sink);
+
+        for (int meet = grow(); meet >= 0; meet = grow()) {
+            time++;
+            augment(meet);
+            adopt();
+        }
+        return metrics.finish("BoykovKolmogorov", graph.getGraphFlow());
+    }
+
+    /**
+     * Solve, and take the minimum cut from the final search trees: the source tree stops
+     * growing only when no residual arc leaves it, so it is exactly the set of vertices
+     * reachable from the source.
+     */
+    public MaxFlowResult solve(ResidualGraph graph) throws Exception {
+        double flow = findMaxFlow(graph);
+        if (source < 0 || sink < 0) {
+            return MaxFlowResult.ofResidual(graph, flow);
+        }
+        BitSet side = new BitSet(n);
+        for (int v = 0; v < n; v++) {
+            if (tree[v] == SOURCE_TREE) {
+                side.set(v);
+            }
+        }
+        return MaxFlowResult.of(graph, flow, side);
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED. Arcs scanned
+     *         include the tree growth and the orphan adoption.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Grow the trees from their active vertices until an arc joins them.
+     * @return the joining arc, its tail is in the source tree and its head in the sink tree,
+     * or -1 if the trees cannot grow any further
+     */
+    private int grow() {
+        while (activeSize > 0) {
+            int v = active[activeFirst];
+            if (tree[v] == FREE) {
+                removeActive();
+                continue;
+            }
+
+            int last = graph.getLastArc(v);
+            if (tree[v] == SOURCE_TREE) {
+                for (int arc = graph.getFirstArc(v); arc < last; arc++) {
+                    if (graph.getResidualCapacity(arc) <= 0) {
+                        continue;
+                    }
+                    int w = graph.getHead(arc);
+                    if (tree[w] == FREE) {
+                        attach(w, SOURCE_TREE, arc, v);
+                    } else if (tree[w] == SINK_TREE) {
+                        // v stays at the front of the queue, it may have more arcs into the sink tree
+                        if (SolverMetrics.ENABLED) {
+                            metrics.arcsScanned += arc + 1 - graph.getFirstArc(v);
+                        }
+                        return arc;
+                    } else if (isCloser(v, w)) {
+                        parentArc[w] = arc;
+                        stamp[w] = stamp[v];
+                        dist[w] = dist[v] + 1;
+                    }
+                }
+            } else {
+                for (int arc = graph.getFirstArc(v); arc < last; arc++) {
+                    int toward = graph.getReverse(arc);
+                    if (graph.getResidualCapacity(toward) <= 0) {
+                        continue;
+                    }
+                    int w = graph.getHead(arc);
+                    if (tree[w] == FREE) {
+                        attach(w, SINK_TREE, toward, v);
+                    } else if (tree[w] == SOURCE_TREE) {
+                        if (SolverMetrics.ENABLED) {
+                            metrics.arcsScanned += arc + 1 - graph.getFirstArc(v);
+                        }
+                        return toward;
+                    } else if (isCloser(v, w)) {
+                        parentArc[w] = toward;
+                        stamp[w] = stamp[v];
+                        dist[w] = dist[v] + 1;
+                    }
+                }
+            }
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += last - graph.getFirstArc(v);
+            }
+            removeActive();
+        }
+        return -1;
+    }
+
+    /**
+     * Add a free vertex to a tree as a child of the given parent.
+     */
+    private void attach(int vertex, int side, int arc, int parent) {
+        tree[vertex] = side;
+        parentArc[vertex] = arc;
+        stamp[vertex] = stamp[parent];
+        dist[vertex] = dist[parent] + 1;
+        addActive(vertex);
+    }
+
+    /**
+     * Whether hanging w below v would bring w closer to its root, judged by the cached distances.
+     */
+    private boolean isCloser(int v, int w) {
+        return stamp[w] <= stamp[v] && dist[w] > dist[v];
+    }
+
+    /**
+     * Push the bottleneck capacity along the path through the joining arc. Every vertex whose
+     * tree arc is saturated becomes an orphan.
+     */
+    private void augment(int meet) {
+        double bottleneck = graph.getResidualCapacity(meet);
+        for (int v = graph.getTail(meet); v != source; v = graph.getTail(parentArc[v])) {
+            bottleneck = Math.min(bottleneck, graph.getResidualCapacity(parentArc[v]));
+        }
+        for (int v = graph.getHead(meet); v != sink; v = graph.getHead(parentArc[v])) {
+            bottleneck = Math.min(bottleneck, graph.getResidualCapacity(parentArc[v]));
+        }
+
+        graph.increaseFlow(meet, bottleneck);
+        if (SolverMetrics.ENABLED) {
+            metrics.augmentations++;
+            metrics.augmentingPathArcs++;
+        }
+        for (int v = graph.getTail(meet); v != source; ) {
+            int arc = parentArc[v];
+            graph.increaseFlow(arc, bottleneck);
+            if (SolverMetrics.ENABLED) {
+                metrics.augmentingPathArcs++;
+            }
+            int parent = graph.getTail(arc);
+            if (graph.getResidualCapacity(arc) <= 0) {
+                addOrphan(v);
+            }
+            v = parent;
+        }
+        for (int v = graph.getHead(meet); v != sink; ) {
+            int arc = parentArc[v];
+            graph.increaseFlow(arc, bottleneck);
+            if (SolverMetrics.ENABLED) {
+                metrics.augmentingPathArcs++;
+            }
+            int parent = graph.getHead(arc);
+            if (graph.getResidualCapacity(arc) <= 0) {
+                addOrphan(v);
+            }
+            v = parent;
+        }
+    }
+
+    /**
+     * Find every orphan a new parent in its own tree that is still connected to the root,
+     * or free it and orphan its children.
+     */
+    private void adopt() {
+        while (orphanSize > 0) {
+            int v = orphans[orphanFirst];
+            orphanFirst = (orphanFirst + 1) % n;
+            orphanSize--;
+
+            int side = tree[v];
+            int first = graph.getFirstArc(v);
+            int last = graph.getLastArc(v);
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += last - first;
+            }
+
+            // the candidate parent with the smallest distance to the root
+            int bestArc = ORPHAN;
+            int bestDist = Integer.MAX_VALUE;
+            for (int arc = first; arc < last; arc++) {
+                int w = graph.getHead(arc);
+                int candidate = side == SOURCE_TREE ? graph.getReverse(arc) : arc;
+                if (tree[w] != side || graph.getResidualCapacity(candidate) <= 0) {
+                    continue;
+                }
+                int d = rootDistance(w, side);
+                if (d < bestDist) {
+                    bestDist = d;
+                    bestArc = candidate;
+                }
+            }
+
+            if (bestArc != ORPHAN) {
+                parentArc[v] = bestArc;
+                stamp[v] = time;
+                dist[v] = bestDist + 1;
+                continue;
+            }
+
+            // no parent: free the vertex, its neighbours may grow into it again later
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += last - first;
+            }
+            for (int arc = first; arc < last; arc++) {
+                int w = graph.getHead(arc);
+                if (tree[w] != side) {
+                    continue;
+                }
+                int toward = side == SOURCE_TREE ? graph.getReverse(arc) : arc;
+                if (graph.getResidualCapacity(toward) > 0) {
+                    addActive(w);
+                }
+                if (parentArc[w] >= 0 && parentOf(w, side) == v) {
+                    addOrphan(w);
+                }
+            }
+            tree[v] = FREE;
+        }
+    }
+
+    /**
+     * Distance from the vertex to the root of its tree, or Integer.MAX_VALUE if the walk up
+     * meets an orphan. The distances found are cached along the walked path.
+     */
+    private int rootDistance(int vertex, int side) {
+        int d = 0;
+        int u = vertex;
+        while (true) {
+            if (stamp[u] == time) {
+                d += dist[u];
+                break;
+            }
+            if (parentArc[u] == ORPHAN) {
+                return Integer.MAX_VALUE;
+            }
+            if (parentArc[u] == TERMINAL) {
+                stamp[u] = time;
+                dist[u] = 0;
+                break;
+            }
+            d++;
+            u = parentOf(u, side);
+        }
+        for (int k = d, w = vertex; stamp[w] != time; w = parentOf(w, side), k--) {
+            stamp[w] = time;
+            dist[w] = k;
+        }
+        return d;
+    }
+
+    private int parentOf(int vertex, int side) {
+        return side == SOURCE_TREE ? graph.getTail(parentArc[vertex]) : graph.getHead(parentArc[vertex]);
+    }
+
+    private void addOrphan(int vertex) {
+        parentArc[vertex] = ORPHAN;
+        orphans[(orphanFirst + orphanSize) % n] = vertex;
+        orphanSize++;
+    }
+
+    private void addActive(int vertex) {
+        if (!queued[vertex]) {
+            queued[vertex] = true;
+            active[(activeFirst + activeSize) % n] = vertex;
+            activeSize++;
+        }
+    }
+
+    private void removeActive() {
+        queued[active[activeFirst]] = false;
+        activeFirst = (activeFirst + 1) % n;
+        activeSize--;
+    }
+}
@@ -0,0 +1,259 @@
+package maxflow;
+
+import flowgraph.*;
+import simplegraph.SimpleGraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Dinic's algorithm. Each phase builds a BFS level graph from the source and then sends
+ * a blocking flow through it, using a current-arc pointer per vertex so an arc that
+ * cannot carry more flow in this phase is never looked at again.
+ *
+ * Several sources and sinks act as one virtual source and sink: the BFS starts from all
+ * sources at level 0 and the blocking flow runs from each source in turn to any sink.
+ */
+public class Dinic implements MaxFlowSolver {
+    private int[] level;
+    private int[] queue;
+    private int[] currentArc;
+    private int[] path;
+
+    // sources of the graph being solved
+    private int[] sources;
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
+    public double findMaxFlow(SimpleGraph simpleGraph) throws Exception {
+        return findMaxFlow(EdgeList.of(simpleGraph));
+    }
+
+    /**
+     * Solve in exact long arithmetic when every capacity is integral, in double otherwise.
+     */
+    public double findMaxFlow(EdgeList edges) throws Exception {
+        if (CapacityType.of(edges) != CapacityType.DOUBLE) {
+            return findMaxFlow(IntegralResidualGraph.create(edges));
+        }
+        return findMaxFlow(new ResidualGraph(edges));
+    }
+
+    public double findMaxFlow(ResidualGraph graph) throws Exception {
+        run(graph);
+        return metrics.finish("Dinic", graph.getGraphFlow());
+    }
+
+    /**
+     * The same phases in exact integral arithmetic.
+     */
+    public long findMaxFlow(IntegralResidualGraph graph) throws Exception {
+        run(graph);
+        return metrics.finish("Dinic", graph.getGraphFlow());
+    }
+
+    /**
+     * Solve, and take the minimum cut from the last BFS, which did not reach the sink and so
+     * labeled exactly the vertices reachable from the source.
+     */
+    public MaxFlowResult solve(ResidualGraph graph) throws Exception {
+        double flow = findMaxFlow(graph);
+        return MaxFlowResult.of(graph, flow, lastLevels(graph));
+    }
+
+    /**
+     * The integral solve, with the cut taken the same way.
+     */
+    public MaxFlowResult solve(IntegralResidualGraph graph) throws Exception {
+        long flow = findMaxFlow(graph);
+        return MaxFlowResult.of(graph, flow, lastLevels(graph));
+    }
+
+    private BitSet lastLevels(FlowNetwork graph) {
+        BitSet side = new BitSet(graph.getVerticesNum());
+        if (graph.getSource() < 0 || graph.getSink() < 0) {
+            return side;
+        }
+        for (int v = 0; v < graph.getVerticesNum(); v++) {
+            if (level[v] >= 0) {
+                side.set(v);
+            }
+        }
+        return side;
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean supportsMultipleTerminals() {
+        return true;
+    }
+
+    /**
+     * Grow the arrays to the graph. Arrays that are large enough are kept: every BFS labels
+     * the vertices afresh and the other arrays are written before they are read.
+     */
+    private void allocate(FlowNetwork graph) {
+        int n = graph.getVerticesNum();
+        if (level == null || level.length < n) {
+            level = new int[n];
+            queue = new int[n];
+            currentArc = new int[n];
+            path = new int[n];
+        }
+        sources = graph.getSources();
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Send blocking flows until no sink is reachable.
+     * @param graph a ResidualGraph or an IntegralResidualGraph
+     */
+    private void run(FlowNetwork graph) {
+        allocate(graph);
+        while (bfs(graph)) {
+            resetCurrentArcs(graph);
+            for (int source : sources) {
+                blockingFlow(graph, source);
+            }
+        }
+    }
+
+    private void resetCurrentArcs(FlowNetwork graph) {
+        for (int v = 0; v < graph.getVerticesNum(); v++) {
+            currentArc[v] = graph.getFirstArc(v);
+        }
+    }
+
+    /**
+     * Label every vertex with its distance from the nearest source in the residual graph.
+     * @param graph the residual graph
+     * @return whether a sink is reachable from the sources
+     */
+    private boolean bfs(FlowNetwork graph) {
+        if (graph.getSource() < 0 || graph.getSink() < 0) {
+            return false;
+        }
+        if (SolverMetrics.ENABLED) {
+            metrics.phases++;
+        }
+        Arrays.fill(level, 0, graph.getVerticesNum(), -1);
+        for (int i = 0; i < sources.length; i++) {
+            level[sources[i]] = 0;
+            queue[i] = sources[i];
+        }
+        int sinkLevel = -1;
+        for (int first = 0, last = sources.length; first < last; first++) {
+            int v = queue[first];
+            if (sinkLevel >= 0 && level[v] >= sinkLevel) {
+                // vertices this far from the sources cannot be on a shortest path
+                break;
+            }
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += graph.getLastArc(v) - graph.getFirstArc(v);
+            }
+            for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                int head = graph.getHead(arc);
+                if (level[head] < 0 && graph.isResidual(arc)) {
+                    level[head] = level[v] + 1;
+                    queue[last++] = head;
+                    if (sinkLevel < 0 && graph.isSink(head)) {
+                        sinkLevel = level[head];
+                    }
+                }
+            }
+        }
+        return sinkLevel >= 0;
+    }
+
+    /**
+     * Saturate every path of the level graph from the source to a sink. The search keeps the
+     * current path on an explicit arc stack, so the depth of the level graph does not touch
+     * the thread stack. Only the augmentation depends on the type of the capacities.
+     * @param graph a ResidualGraph or an IntegralResidualGraph
+     * @param source the source the paths start from
+     */
+    private void blockingFlow(FlowNetwork graph, int source) {
+        int depth = 0;
+        int v = source;
+        while (true) {
+            if (graph.isSink(v)) {
+                if (SolverMetrics.ENABLED) {
+                    metrics.augmentations++;
+                    metrics.augmentingPathArcs += depth;
+                }
+                int retreat = graph instanceof IntegralResidualGraph
+                        ? augment((IntegralResidualGraph) graph, depth)
+                        : augment((ResidualGraph) graph, depth);
+                // continue from the tail of the first saturated arc
+                depth = retreat;
+                v = depth == 0 ? source : graph.getHead(path[depth - 1]);
+                continue;
+            }
+
+            int arc = currentArc[v];
+            int last = graph.getLastArc(v);
+            while (arc < last && (!graph.isResidual(arc) || level[graph.getHead(arc)] != level[v] + 1)) {
+                arc++;
+            }
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += Math.min(arc + 1, last) - currentArc[v];
+            }
+            currentArc[v] = arc;
+
+            if (arc < last) {
+                // advance
+                path[depth++] = arc;
+                v = graph.getHead(arc);
+            } else {
+                // retreat, v is a dead end for the rest of this phase
+                level[v] = -1;
+                if (v == source) {
+                    return;
+                }
+                v = graph.getTail(path[--depth]);
+                currentArc[v]++;
+            }
+        }
+    }
+
+    /**
+     * Augment along the first depth arcs of the path by their bottleneck.
+     * @return the position of the first saturated arc on the path
+     */
+    private int augment(ResidualGraph graph, int depth) {
+        double bottleneck = Double.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            bottleneck = Math.min(bottleneck, graph.getResidualCapacity(path[i]));
+        }
+        int retreat = depth;
+        for (int i = depth - 1; i >= 0; i--) {
+            graph.increaseFlow(path[i], bottleneck);
+            if (graph.getResidualCapacity(path[i]) <= 0) {
+                retreat = i;
+            }
+        }
+        return retreat;
+    }
+
+    private int augment(IntegralResidualGraph graph, int depth) {
+        long bottleneck = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            bottleneck = Math.min(bottleneck, graph.getResidualCapacity(path[i]));
+        }
+        int retreat = depth;
+        for (int i = depth - 1; i >= 0; i--) {
+            graph.increaseFlow(path[i], bottleneck);
+            if (graph.getResidualCapacity(path[i]) <= 0) {
+                retreat = i;
+            }
+        }
+        return retreat;
+    }
+}
@@ -0,0 +1,193 @@
+package maxflow;
+
+import flowgraph.*;
+import simplegraph.SimpleGraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Edmonds-Karp: always augments along a shortest residual s-t path.
+ *
+ * The path search is a bidirectional BFS that grows one tree from the source and one
+ * towards the sink, always expanding the smaller frontier by a full level, and stops as
+ * soon as an arc joins the two trees. Parent arcs and visited marks live in arrays that
+ * are allocated once and kept for later solves; the marks are stamped with the number of
+ * the search, so nothing has to be cleared between augmentations or between solves.
+ */
+public class EdmondsKarp implements MaxFlowSolver {
+    // arc by which a vertex was reached from the source, and arc leading from it towards the sink
+    private int[] parentArc;
+    private int[] childArc;
+
+    // a vertex is in the source tree if fromSource[v] == epoch, likewise for the sink tree
+    private int[] fromSource;
+    private int[] fromSink;
+    private int epoch;
+
+    private int[] sourceQueue;
+    private int[] sinkQueue;
+
+    // whether the last search ended because the source tree could not grow any further
+    private boolean sourceExhausted;
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
+    public double findMaxFlow(SimpleGraph simpleGraph) throws Exception {
+        return findMaxFlow(new ResidualGraph(simpleGraph));
+    }
+
+    public double findMaxFlow(ResidualGraph graph) throws Exception {
+        MaxFlowSolvers.requireSingleTerminals(graph, "EdmondsKarp");
+        int n = graph.getVerticesNum();
+        int source = graph.getSource();
+        int sink = graph.getSink();
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+        if (source < 0 || sink < 0) {
+            return metrics.finish("EdmondsKarp", graph.getGraphFlow());
+        }
+
+        if (fromSource == null || fromSource.length < n) {
+            parentArc = new int[n];
+            childArc = new int[n];
+            fromSource = new int[n];
+            fromSink = new int[n];
+            sourceQueue = new int[n];
+            sinkQueue = new int[n];
+            epoch = 0;
+        }
+
+        for (int meet = search(graph, source, sink); meet >= 0; meet = search(graph, source, sink)) {
+            augment(graph, source, sink, meet);
+        }
+        return metrics.finish("EdmondsKarp", graph.getGraphFlow());
+    }
+
+    /**
+     * Solve, and take the minimum cut from the last search, which failed because one of its
+     * trees ran out of vertices. If the source tree did, it holds exactly the vertices reachable
+     * from the source; if the sink tree did, the source side is everything outside it.
+     */
+    public MaxFlowResult solve(ResidualGraph graph) throws Exception {
+        double flow = findMaxFlow(graph);
+        int n = graph.getVerticesNum();
+        BitSet side = new BitSet(n);
+        if (graph.getSource() >= 0 && graph.getSink() >= 0) {
+            for (int v = 0; v < n; v++) {
+                if (sourceExhausted ? fromSource[v] == epoch : fromSink[v] != epoch) {
+                    side.set(v);
+                }
+            }
+            return MaxFlowResult.of(graph, flow, side);
+        }
+        return MaxFlowResult.ofResidual(graph, flow);
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Bidirectional BFS for a shortest residual path.
+     * @return the arc joining the source tree to the sink tree, or -1 if there is no path
+     */
+    private int search(ResidualGraph graph, int source, int sink) {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(fromSource, 0);
+            Arrays.fill(fromSink, 0);
+            epoch = 1;
+        }
+        fromSource[source] = epoch;
+        fromSink[sink] = epoch;
+        sourceQueue[0] = source;
+        sinkQueue[0] = sink;
+        int sourceFirst = 0, sourceLast = 1;
+        int sinkFirst = 0, sinkLast = 1;
+
+        while (sourceFirst < sourceLast && sinkFirst < sinkLast) {
+            if (sourceLast - sourceFirst <= sinkLast - sinkFirst) {
+                // expand one level of the source tree
+                int levelEnd = sourceLast;
+                for (; sourceFirst < levelEnd; sourceFirst++) {
+                    int v = sourceQueue[sourceFirst];
+                    for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                        if (SolverMetrics.ENABLED) {
+                            metrics.arcsScanned++;
+                        }
+                        if (graph.getResidualCapacity(arc) <= 0) {
+                            continue;
+                        }
+                        int w = graph.getHead(arc);
+                        if (fromSink[w] == epoch) {
+                            return arc;
+                        }
+                        if (fromSource[w] != epoch) {
+                            fromSource[w] = epoch;
+                            parentArc[w] = arc;
+                            sourceQueue[sourceLast++] = w;
+                        }
+                    }
+                }
+            } else {
+                // expand one level of the sink tree along reversed residual arcs
+                int levelEnd = sinkLast;
+                for (; sinkFirst < levelEnd; sinkFirst++) {
+                    int v = sinkQueue[sinkFirst];
+                    for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                        if (SolverMetrics.ENABLED) {
+                            metrics.arcsScanned++;
+                        }
+                        int toward = graph.getReverse(arc);
+                        if (graph.getResidualCapacity(toward) <= 0) {
+                            continue;
+                        }
+                        int w = graph.getHead(arc);
+                        if (fromSource[w] == epoch) {
+                            return toward;
+                        }
+                        if (fromSink[w] != epoch) {
+                            fromSink[w] = epoch;
+                            childArc[w] = toward;
+                            sinkQueue[sinkLast++] = w;
+                        }
+                    }
+                }
+            }
+        }
+        sourceExhausted = sourceFirst >= sourceLast;
+        return -1;
+    }
+
+    /**
+     * Push the bottleneck capacity along the path through the joining arc.
+     */
+    private void augment(ResidualGraph graph, int source, int sink, int meet) {
+        double bottleneck = graph.getResidualCapacity(meet);
+        for (int v = graph.getTail(meet); v != source; v = graph.getTail(parentArc[v])) {
+            bottleneck = Math.min(bottleneck, graph.getResidualCapacity(parentArc[v]));
+        }
+        for (int v = graph.getHead(meet); v != sink; v = graph.getHead(childArc[v])) {
+            bottleneck = Math.min(bottleneck, graph.getResidualCapacity(childArc[v]));
+        }
+
+        graph.increaseFlow(meet, bottleneck);
+        int arcs = 1;
+        for (int v = graph.getTail(meet); v != source; v = graph.getTail(parentArc[v])) {
+            graph.increaseFlow(parentArc[v], bottleneck);
+            arcs++;
+        }
+        for (int v = graph.getHead(meet); v != sink; v = graph.getHead(childArc[v])) {
+            graph.increaseFlow(childArc[v], bottleneck);
+            arcs++;
+        }
+        if (SolverMetrics.ENABLED) {
+            metrics.augmentations++;
+            metrics.augmentingPathArcs += arcs;
+        }
+    }
+}
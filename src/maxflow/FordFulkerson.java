@@ -3,45 +3,150 @@ package maxflow;
 import simplegraph.SimpleGraph;
 import flowgraph.*;
 
-public class FordFulkerson {
+import java.util.Arrays;
+import java.util.BitSet;
+
+public class FordFulkerson implements MaxFlowSolver {
+    // a vertex is visited in the current search if visited[v] == epoch
+    private int[] visited;
+    private int epoch;
+
+    // the search path: vertices on the explicit stack, the arc into each of them, and the next arc to try
+    private int[] stack;
+    private int[] pathArc;
+    private int[] nextArc;
+
+    private final SolverMetrics metrics = new SolverMetrics();
 
     public double findMaxFlow(SimpleGraph simpleGraph) throws Exception {
-        NetworkGraph graph = new NetworkGraph(simpleGraph);
-        double INF = Double.MAX_VALUE / 2;
-        double f = dfs(graph, graph.getSource(), INF);
+        return findMaxFlow(new ResidualGraph(simpleGraph));
+    }
+
+    public double findMaxFlow(ResidualGraph graph) throws Exception {
+        MaxFlowSolvers.requireSingleTerminals(graph, "FordFulkerson");
+        allocate(graph.getVerticesNum());
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+
+        double f = dfs(graph, graph.getSource());
         for(; f!=0; ){
-            graph.setNotVisited();
-            f = dfs(graph, graph.getSource(), INF);
+            f = dfs(graph, graph.getSource());
+        }
+        return metrics.finish("FordFulkerson", graph.getGraphFlow());
+    }
+
+    /**
+     * Solve, and take the minimum cut from the last search, which found no path and so
+     * visited exactly the vertices reachable from the source.
+     */
+    public MaxFlowResult solve(ResidualGraph graph) throws Exception {
+        double flow = findMaxFlow(graph);
+        return MaxFlowResult.of(graph, flow, lastSearch(graph));
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Grow the arrays to n vertices. Arrays that are large enough are kept, and so is the
+     * epoch, which keeps counting up so the old marks in visited stay stale.
+     */
+    private void allocate(int n) {
+        if (visited == null || visited.length < n) {
+            visited = new int[n];
+            epoch = 0;
+            stack = new int[n + 1];
+            pathArc = new int[n + 1];
+            nextArc = new int[n];
         }
-        return graph.getGraphFlow();
     }
 
     /**
-     * Traversing the vertices
+     * Depth first search for an s-t path in the residual graph, augmenting along the first one found.
+     * The path is kept on an explicit stack so its length is not limited by the thread stack.
      * @param graph This is a residual graph
      * @param origin This is source
-     * @return LinkedList Returns the s-t path
+     * @return double Returns the bottleneck of the s-t path found, 0 if there is none
      */
-    private double dfs(NetworkGraph graph, NetworkVertex origin, double flow) throws Exception {
-        // Mark origin as visited
+    private double dfs(ResidualGraph graph, int origin) throws Exception {
+        if (origin < 0) {
+            return 0;
+        }
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            epoch = 1;
+        }
 
-        if(origin.getName().equals("t"))
-            return flow;
+        int sink = graph.getSink();
+        int depth = 0;
+        stack[0] = origin;
+        visited[origin] = epoch;
+        nextArc[origin] = graph.getFirstArc(origin);
 
-        origin.setVisited();
+        while (depth >= 0) {
+            int vertex = stack[depth];
+            if (vertex == sink) {
+                return augment(graph, depth);
+            }
 
-        for (NetworkEdge edge : origin.getEdges()) {
-            if (edge.getResidualCapacity() > 0 && !edge.getSecondEndpoint().isVisited()) {
-                double bottleneck = this.dfs(graph, edge.getSecondEndpoint(), Math.min(flow, edge.getResidualCapacity()));
-                if(bottleneck > 0){
-                   edge.increaseFlow(bottleneck);
-                   return bottleneck;
-                }
+            int arc = nextArc[vertex];
+            int last = graph.getLastArc(vertex);
+            while (arc < last && (graph.getResidualCapacity(arc) <= 0 || visited[graph.getHead(arc)] == epoch)) {
+                arc++;
+            }
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += Math.min(arc + 1, last) - nextArc[vertex];
+            }
 
+            if (arc < last) {
+                nextArc[vertex] = arc + 1;
+                int head = graph.getHead(arc);
+                visited[head] = epoch;
+                nextArc[head] = graph.getFirstArc(head);
+                pathArc[++depth] = arc;
+                stack[depth] = head;
+            } else {
+                // No path found through this vertex
+                depth--;
             }
         }
 
         // No path found
         return 0;
     }
+
+    private BitSet lastSearch(ResidualGraph graph) {
+        BitSet side = new BitSet(graph.getVerticesNum());
+        for (int v = 0; v < graph.getVerticesNum(); v++) {
+            // without a source there was no search, and the marks are left from an earlier solve
+            if (graph.getSource() >= 0 && visited[v] == epoch) {
+                side.set(v);
+            }
+        }
+        return side;
+    }
+
+    /**
+     * Push the bottleneck capacity along the arcs of the search path.
+     * @return the bottleneck
+     */
+    private double augment(ResidualGraph graph, int depth) {
+        if (SolverMetrics.ENABLED) {
+            metrics.augmentations++;
+            metrics.augmentingPathArcs += depth;
+        }
+        double bottleneck = Double.MAX_VALUE / 2;
+        for (int i = 1; i <= depth; i++) {
+            bottleneck = Math.min(bottleneck, graph.getResidualCapacity(pathArc[i]));
+        }
+        for (int i = 1; i <= depth; i++) {
+            graph.increaseFlow(pathArc[i], bottleneck);
+        }
+        return bottleneck;
+    }
 }
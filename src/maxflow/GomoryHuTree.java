@@ -0,0 +1,239 @@
+package maxflow;
+
+import flowgraph.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Gomory-Hu tree of an undirected network, given as a graph with every edge in both
+ * directions such as those of generation.Random. The minimum cut between any two vertices
+ * equals the lightest tree edge on the path between them, and is answered in O(log n) by
+ * binary lifting over the tree.
+ *
+ * The tree is built by Gusfield's algorithm: vertex s = 1 .. n - 1 in turn is cut from its
+ * current parent with one max-flow, and the vertices that share its parent and fall on its
+ * side are hung below it. Each cut depends on the parents left by the cuts before it, so the
+ * max-flows are run speculatively in waves, one per thread, each with the parent its vertex
+ * has when the wave starts. The results are then applied in order, and the wave ends early
+ * at the first vertex whose parent was changed by an earlier cut of the same wave; the next
+ * wave starts there. The first cut of a wave is always valid, and on most graphs nearly
+ * every cut is.
+ */
+public class GomoryHuTree {
+    private final EdgeList edges;
+    private final int n;
+    private final int[] parent;
+    private final double[] weight;
+
+    // ancestor 2^k levels up and the lightest edge on the way, for k = 0 .. up.length - 1
+    private int[][] up;
+    private double[][] lightest;
+    private int[] depth;
+
+    private GomoryHuTree(EdgeList edges) {
+        this.edges = edges;
+        this.n = edges.getVerticesNum();
+        this.parent = new int[this.n];
+        this.weight = new double[this.n];
+    }
+
+    /**
+     * Build the tree with one max-flow engine per available processor.
+     * @param edges Edges of the network, each in both directions.
+     */
+    public static GomoryHuTree build(EdgeList edges) throws Exception {
+        return build(edges, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param edges Edges of the network, each in both directions.
+     * @param threads Number of max-flows run at the same time.
+     */
+    public static GomoryHuTree build(EdgeList edges, int threads) throws Exception {
+        GomoryHuTree tree = new GomoryHuTree(edges);
+        tree.gusfield(Math.max(1, Math.min(threads, edges.getVerticesNum())));
+        tree.index();
+        return tree;
+    }
+
+    /**
+     * @param vertex Id of the vertex.
+     * @return Parent of the vertex in the tree, or -1 for the root, vertex 0.
+     */
+    public int getParent(int vertex) {
+        return vertex == 0 ? -1 : this.parent[vertex];
+    }
+
+    /**
+     * @param vertex Id of a vertex other than the root.
+     * @return Weight of the tree edge to its parent, the minimum cut between the two.
+     */
+    public double getWeight(int vertex) {
+        return this.weight[vertex];
+    }
+
+    /**
+     * @param u Name of a vertex.
+     * @param v Name of another vertex.
+     * @return Value of the minimum cut between the two vertices.
+     * @throws IllegalArgumentException if there is no vertex of either name
+     */
+    public double minCut(String u, String v) {
+        int uId = this.edges.getVertexId(u);
+        int vId = this.edges.getVertexId(v);
+        if (uId < 0) {
+            throw new IllegalArgumentException("No vertex named " + u);
+        }
+        if (vId < 0) {
+            throw new IllegalArgumentException("No vertex named " + v);
+        }
+        return this.minCut(uId, vId);
+    }
+
+    /**
+     * @param u Id of a vertex.
+     * @param v Id of another vertex.
+     * @return Value of the minimum cut between the two vertices, infinite if they are the same.
+     */
+    public double minCut(int u, int v) {
+        double cut = Double.POSITIVE_INFINITY;
+        if (this.depth[u] < this.depth[v]) {
+            int swap = u;
+            u = v;
+            v = swap;
+        }
+        for (int k = this.up.length - 1; k >= 0; k--) {
+            if (this.depth[u] - (1 << k) >= this.depth[v]) {
+                cut = Math.min(cut, this.lightest[k][u]);
+                u = this.up[k][u];
+            }
+        }
+        if (u == v) {
+            return cut;
+        }
+        for (int k = this.up.length - 1; k >= 0; k--) {
+            if (this.up[k][u] != this.up[k][v]) {
+                cut = Math.min(cut, Math.min(this.lightest[k][u], this.lightest[k][v]));
+                u = this.up[k][u];
+                v = this.up[k][v];
+            }
+        }
+        return Math.min(cut, Math.min(this.lightest[0][u], this.lightest[0][v]));
+    }
+
+    /**
+     * Gusfield's algorithm with the max-flows of each wave run in parallel. Only the cuts are
+     * needed, so each max-flow stops at the maximum preflow of HighestLabelPreflowPush.solve.
+     */
+    private void gusfield(int threads) throws Exception {
+        // a graph and an engine per slot, both reused by every cut run in the slot
+        ResidualGraph[] graphs = new ResidualGraph[threads];
+        HighestLabelPreflowPush[] engines = new HighestLabelPreflowPush[threads];
+        for (int i = 0; i < threads; i++) {
+            graphs[i] = new ResidualGraph(this.edges);
+            engines[i] = new HighestLabelPreflowPush();
+        }
+        int[] target = new int[threads];
+        double[] value = new double[threads];
+        BitSet[] side = new BitSet[threads];
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int first = 1; first < this.n; ) {
+                int size = Math.min(threads, this.n - first);
+                ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    int slot = i;
+                    int s = first + i;
+                    target[slot] = this.parent[s];
+                    tasks.add(pool.submit(() -> {
+                        ResidualGraph graph = graphs[slot];
+                        graph.reset();
+                        graph.setTerminals(s, target[slot]);
+                        MaxFlowResult cut = engines[slot].solve(graph);
+                        value[slot] = cut.getValue();
+                        side[slot] = cut.getSourceSide();
+                        return null;
+                    }));
+                }
+                for (ForkJoinTask<?> task : tasks) {
+                    task.get();
+                }
+
+                int applied = 0;
+                while (applied < size && this.parent[first + applied] == target[applied]) {
+                    this.apply(first + applied, value[applied], side[applied]);
+                    applied++;
+                }
+                first += applied;
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Record the cut between s and its parent t: hang the vertices with parent t on the side
+     * of s below s, and move s above t if the parent of t is on the side of s.
+     */
+    private void apply(int s, double cut, BitSet side) {
+        int t = this.parent[s];
+        this.weight[s] = cut;
+        for (int v = side.nextSetBit(0); v >= 0; v = side.nextSetBit(v + 1)) {
+            if (v != s && this.parent[v] == t) {
+                this.parent[v] = s;
+            }
+        }
+        if (t != 0 && side.get(this.parent[t])) {
+            this.parent[s] = this.parent[t];
+            this.parent[t] = s;
+            this.weight[s] = this.weight[t];
+            this.weight[t] = cut;
+        }
+    }
+
+    /**
+     * Fill in the depths and the binary lifting tables.
+     */
+    private void index() {
+        int levels = 1;
+        while ((1 << levels) < this.n) {
+            levels++;
+        }
+        this.depth = new int[this.n];
+        this.up = new int[levels][this.n];
+        this.lightest = new double[levels][this.n];
+
+        // parents can have larger ids than their children after the swaps, so follow each
+        // vertex up to the first vertex of known depth
+        boolean[] known = new boolean[this.n];
+        int[] path = new int[this.n];
+        known[0] = true;
+        for (int v = 1; v < this.n; v++) {
+            int length = 0;
+            for (int u = v; !known[u]; u = this.parent[u]) {
+                path[length++] = u;
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                int u = path[i];
+                this.depth[u] = this.depth[this.parent[u]] + 1;
+                known[u] = true;
+            }
+        }
+
+        for (int v = 0; v < this.n; v++) {
+            this.up[0][v] = v == 0 ? 0 : this.parent[v];
+            this.lightest[0][v] = v == 0 ? Double.POSITIVE_INFINITY : this.weight[v];
+        }
+        for (int k = 1; k < levels; k++) {
+            for (int v = 0; v < this.n; v++) {
+                int middle = this.up[k - 1][v];
+                this.up[k][v] = this.up[k - 1][middle];
+                this.lightest[k][v] = Math.min(this.lightest[k - 1][v], this.lightest[k - 1][middle]);
+            }
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package maxflow;
+
+import flowgraph.*;
+import simplegraph.SimpleGraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Push-relabel with the heuristics that make it practical on large graphs:
+ * highest-label vertex selection from bucket lists, a current arc per vertex,
+ * relabeling to the minimum neighbour height plus one, the gap heuristic and
+ * periodic global relabeling by backward BFS from the sink.
+ *
+ * Heights below n are exact lower bounds on the distance to the sink. A vertex that can
+ * no longer reach the sink is lifted to n or above and sends its excess back to the
+ * source, so the result is a flow and not only a preflow.
+ *
+ * Several sources and sinks act as one virtual source and sink: every source starts at
+ * height n with its edges saturated, every sink is at height 0, and the global relabel
+ * searches from all of them at once.
+ */
+public class HighestLabelPreflowPush implements MaxFlowSolver {
+    // global relabel once the relabel work exceeds (ALPHA * n + m) / GLOBAL_RELABEL_FREQUENCY
+    private static final int ALPHA = 6;
+    private static final double GLOBAL_RELABEL_FREQUENCY = 0.5;
+
+    private ResidualGraph graph;
+    private int n;
+    private int[] sources;
+    private int[] sinks;
+
+    private double[] excess;
+    private int[] height;
+    private int[] currentArc;
+
+    // active vertices of each height, singly linked through activeNext
+    private int[] activeFirst;
+    private int[] activeNext;
+    private int maxActive;
+
+    // all vertices of each height below n, doubly linked, used to find gaps
+    private int[] labelFirst;
+    private int[] labelNext;
+    private int[] labelPrev;
+    private int maxLabel;
+
+    private long work;
+
+    // stop at a maximum preflow: vertices lifted to n or above are never discharged
+    private boolean firstPhaseOnly;
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
+    public double findMaxFlow(SimpleGraph simpleGraph) throws Exception {
+        return findMaxFlow(new ResidualGraph(simpleGraph));
+    }
+
+    public double findMaxFlow(ResidualGraph graph) throws Exception {
+        if (graph.getSource() < 0 || graph.getSink() < 0) {
+            return graph.getGraphFlow();
+        }
+
+        // reuse the excesses of the last solve if they are large enough
+        int n = graph.getVerticesNum();
+        double[] excess = this.excess == null || this.excess.length < n ? new double[n] : this.excess;
+        Arrays.fill(excess, 0, n, 0);
+
+        // start with a preflow saturating every edge out of the sources, but not those between
+        // two sources, which are inside the virtual source
+        int saturated = 0;
+        for (int source : graph.getSources()) {
+            for (int arc = graph.getFirstArc(source); arc < graph.getLastArc(source); arc++) {
+                if (graph.isBackward(arc) || graph.isSource(graph.getHead(arc))) {
+                    continue;
+                }
+                double flow = graph.getResidualCapacity(arc);
+                graph.increaseFlow(arc, flow);
+                excess[source] -= flow;
+                excess[graph.getHead(arc)] += flow;
+                saturated++;
+            }
+        }
+        double flow = completePreflow(graph, excess);
+        if (SolverMetrics.ENABLED) {
+            metrics.pushes += saturated;
+            metrics.saturatingPushes += saturated;
+        }
+        return metrics.finish("HighestLabelPreflowPush", flow);
+    }
+
+    /**
+     * Run only the first phase, which ends with a maximum preflow: vertices that can no longer
+     * reach the sink are lifted to n or above and keep their excess. Heights below n always form
+     * a contiguous range from the sink up, so no residual arc leads from a vertex at n or above
+     * to one below, and those vertices are the source side of a minimum cut. Its capacity is the
+     * excess at the sinks. The graph is left holding the preflow.
+     */
+    public MaxFlowResult solve(ResidualGraph graph) throws Exception {
+        if (graph.getSource() < 0 || graph.getSink() < 0) {
+            return MaxFlowResult.ofResidual(graph, findMaxFlow(graph));
+        }
+        firstPhaseOnly = true;
+        try {
+            findMaxFlow(graph);
+        } finally {
+            firstPhaseOnly = false;
+        }
+        BitSet side = new BitSet(n);
+        for (int v = 0; v < n; v++) {
+            if (height[v] >= n) {
+                side.set(v);
+            }
+        }
+        double value = 0;
+        for (int sink : sinks) {
+            value += excess[sink];
+        }
+        return MaxFlowResult.of(graph, value, side);
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean supportsMultipleTerminals() {
+        return true;
+    }
+
+    /**
+     * Turn a preflow into a maximum flow.
+     * @param graph the residual graph holding the preflow
+     * @param excess excess of every vertex under the preflow, updated in place
+     * @return the value of the maximum flow
+     */
+    double completePreflow(ResidualGraph graph, double[] excess) {
+        this.graph = graph;
+        this.excess = excess;
+        n = graph.getVerticesNum();
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+        sources = graph.getSources();
+        sinks = graph.getSinks();
+
+        // the global relabel below initializes every array, so large enough ones are kept
+        if (height == null || height.length < n) {
+            height = new int[n];
+            currentArc = new int[n];
+            activeFirst = new int[2 * n + 1];
+            activeNext = new int[n];
+            labelFirst = new int[n];
+            labelNext = new int[n];
+            labelPrev = new int[n];
+        }
+
+        long threshold = (long) ((ALPHA * (long) n + graph.getArcsNum() / 2) / GLOBAL_RELABEL_FREQUENCY);
+        globalRelabel();
+        while (maxActive >= 0) {
+            int vertex = activeFirst[maxActive];
+            if (vertex < 0) {
+                maxActive--;
+                continue;
+            }
+            activeFirst[maxActive] = activeNext[vertex];
+            discharge(vertex);
+
+            if (work > threshold) {
+                globalRelabel();
+            }
+        }
+        return graph.getGraphFlow();
+    }
+
+    /**
+     * Push excess out of the vertex along admissible arcs, relabeling whenever the
+     * current arc runs off the end of the adjacency list, until the excess is gone.
+     * @param vertex an active vertex that is in no bucket
+     */
+    private void discharge(int vertex) {
+        int last = graph.getLastArc(vertex);
+        while (excess[vertex] > 0) {
+            int h = height[vertex];
+            int arc = currentArc[vertex];
+            int start = arc;
+            for (; arc < last; arc++) {
+                int head = graph.getHead(arc);
+                double residual = graph.getResidualCapacity(arc);
+                if (residual > 0 && height[head] == h - 1) {
+                    double flow = Math.min(residual, excess[vertex]);
+                    if (SolverMetrics.ENABLED) {
+                        metrics.pushes++;
+                        if (flow == residual) {
+                            metrics.saturatingPushes++;
+                        }
+                    }
+                    graph.increaseFlow(arc, flow);
+                    if (excess[head] == 0 && !graph.isTerminal(head)) {
+                        addActive(head);
+                    }
+                    excess[vertex] -= flow;
+                    excess[head] += flow;
+                    if (excess[vertex] == 0) {
+                        break;
+                    }
+                }
+            }
+            currentArc[vertex] = arc;
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += Math.min(arc + 1, last) - start;
+            }
+
+            if (excess[vertex] > 0) {
+                if (!relabel(vertex)) {
+                    // only rounding leaves excess that cannot get back to the source; drop it,
+                    // since a push activates its head only when that head had no excess
+                    excess[vertex] = 0;
+                    return;
+                }
+                if (firstPhaseOnly && height[vertex] >= n) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Raise the vertex to one above its lowest residual neighbour, then apply the gap
+     * heuristic if the vertex was the last one at its old height.
+     * @return false if the vertex has no residual arc to a labeled vertex
+     */
+    private boolean relabel(int vertex) {
+        int oldHeight = height[vertex];
+        int newHeight = 2 * n;
+        int minArc = -1;
+        int first = graph.getFirstArc(vertex);
+        int last = graph.getLastArc(vertex);
+        for (int arc = first; arc < last; arc++) {
+            if (graph.getResidualCapacity(arc) > 0 && height[graph.getHead(arc)] + 1 < newHeight) {
+                newHeight = height[graph.getHead(arc)] + 1;
+                minArc = arc;
+            }
+        }
+        work += ALPHA + last - first;
+        if (SolverMetrics.ENABLED) {
+            metrics.relabels++;
+            metrics.arcsScanned += last - first;
+        }
+        if (minArc < 0 || newHeight >= 2 * n) {
+            return false;
+        }
+
+        if (oldHeight < n) {
+            removeLabel(vertex);
+            if (labelFirst[oldHeight] < 0) {
+                // gap: nothing above oldHeight can reach the sink any more
+                gap(oldHeight);
+                newHeight = Math.max(newHeight, n + 1);
+            }
+        }
+        height[vertex] = newHeight;
+        currentArc[vertex] = minArc;
+        if (newHeight < n) {
+            addLabel(vertex);
+        }
+        return true;
+    }
+
+    /**
+     * Lift every vertex strictly above the empty height to n + 1.
+     * @param emptyHeight a height below n with no vertices left on it
+     */
+    private void gap(int emptyHeight) {
+        if (SolverMetrics.ENABLED) {
+            metrics.gaps++;
+        }
+        for (int h = emptyHeight + 1; h <= maxLabel; h++) {
+            for (int vertex = labelFirst[h]; vertex >= 0; vertex = labelNext[vertex]) {
+                height[vertex] = n + 1;
+                currentArc[vertex] = graph.getFirstArc(vertex);
+                if (excess[vertex] > 0) {
+                    addActive(vertex);
+                }
+            }
+            labelFirst[h] = -1;
+            activeFirst[h] = -1;
+        }
+        maxLabel = emptyHeight - 1;
+    }
+
+    /**
+     * Recompute exact heights: the distance to the nearest sink for vertices that can reach
+     * one, and n plus the distance to the nearest source for the rest.
+     */
+    private void globalRelabel() {
+        if (SolverMetrics.ENABLED) {
+            metrics.globalRelabels++;
+        }
+        int unlabeled = 2 * n;
+        for (int v = 0; v < n; v++) {
+            height[v] = unlabeled;
+            currentArc[v] = graph.getFirstArc(v);
+        }
+        Arrays.fill(activeFirst, 0, 2 * n + 1, -1);
+        Arrays.fill(labelFirst, 0, n, -1);
+        maxActive = -1;
+        maxLabel = -1;
+
+        // reuse activeNext as the BFS queue, it is rebuilt below
+        int[] queue = activeNext;
+        int last = 0;
+        for (int sink : sinks) {
+            height[sink] = 0;
+            queue[last++] = sink;
+        }
+        for (int source : sources) {
+            height[source] = n;
+        }
+        last = backwardBfs(queue, 0, last);
+        int first = last;
+        for (int source : sources) {
+            queue[last++] = source;
+        }
+        backwardBfs(queue, first, last);
+
+        for (int v = 0; v < n; v++) {
+            if (!graph.isTerminal(v) && height[v] < n) {
+                addLabel(v);
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            if (excess[v] > 0 && !graph.isTerminal(v) && height[v] < unlabeled) {
+                addActive(v);
+            }
+        }
+        work = 0;
+    }
+
+    /**
+     * Label unlabeled vertices by their residual distance to the vertices in the queue.
+     * @return the new end of the queue
+     */
+    private int backwardBfs(int[] queue, int first, int last) {
+        int unlabeled = 2 * n;
+        for (; first < last; first++) {
+            int v = queue[first];
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += graph.getLastArc(v) - graph.getFirstArc(v);
+            }
+            for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                int w = graph.getHead(arc);
+                if (height[w] == unlabeled && graph.getResidualCapacity(graph.getReverse(arc)) > 0) {
+                    height[w] = height[v] + 1;
+                    queue[last++] = w;
+                }
+            }
+        }
+        return last;
+    }
+
+    private void addActive(int vertex) {
+        int h = height[vertex];
+        if (firstPhaseOnly && h >= n) {
+            return;
+        }
+        activeNext[vertex] = activeFirst[h];
+        activeFirst[h] = vertex;
+        if (h > maxActive) {
+            maxActive = h;
+        }
+    }
+
+    private void addLabel(int vertex) {
+        int h = height[vertex];
+        labelPrev[vertex] = -1;
+        labelNext[vertex] = labelFirst[h];
+        if (labelFirst[h] >= 0) {
+            labelPrev[labelFirst[h]] = vertex;
+        }
+        labelFirst[h] = vertex;
+        if (h > maxLabel) {
+            maxLabel = h;
+        }
+    }
+
+    private void removeLabel(int vertex) {
+        int h = height[vertex];
+        if (labelPrev[vertex] >= 0) {
+            labelNext[labelPrev[vertex]] = labelNext[vertex];
+        } else {
+            labelFirst[h] = labelNext[vertex];
+        }
+        if (labelNext[vertex] >= 0) {
+            labelPrev[labelNext[vertex]] = labelPrev[vertex];
+        }
+    }
+}
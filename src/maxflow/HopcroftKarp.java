@@ -0,0 +1,200 @@
+package maxflow;
+
+import flowgraph.*;
+
+import java.util.Arrays;
+
+/**
+ * Hopcroft-Karp for matching-shaped networks with unit middle edges. The capacities of the
+ * source and sink edges become how many times each left and right vertex may be matched.
+ *
+ * Each phase labels the alternating BFS layers from the left vertices with spare capacity
+ * up to the first layer holding a right vertex with spare capacity, then augments along
+ * vertex-disjoint shortest alternating paths found by a depth first search with a current
+ * arc per vertex. A middle edge is matched when its unit of flow is used, so the matching
+ * lives in the residual graph itself and the terminal edges are filled in at the end.
+ */
+public class HopcroftKarp {
+    private ResidualGraph graph;
+    private byte[] side;
+    private int n;
+
+    // how many more times each vertex may be matched, and how many times it could at the start
+    private double[] spare;
+    private double[] capacity;
+
+    private int[] layer;
+    private int[] queue;
+    private int[] currentArc;
+    private int[] stack;
+    private int[] pathArc;
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
+    /**
+     * @param graph a matching-shaped residual graph without flow
+     * @param side the sides found by BipartiteMaxFlow.partition
+     * @return the value of the maximum flow
+     */
+    double findMaxFlow(ResidualGraph graph, byte[] side) {
+        this.graph = graph;
+        this.side = side;
+        n = graph.getVerticesNum();
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+        int source = graph.getSource();
+        int sink = graph.getSink();
+
+        // kept from the last solve if large enough, the others are written before they are read
+        if (spare == null || spare.length < n) {
+            spare = new double[n];
+            capacity = new double[n];
+            layer = new int[n];
+            queue = new int[n];
+            currentArc = new int[n];
+            stack = new int[n + 1];
+            pathArc = new int[n + 1];
+        } else {
+            Arrays.fill(spare, 0, n, 0);
+        }
+        for (int arc = graph.getFirstArc(source); arc < graph.getLastArc(source); arc++) {
+            if (!graph.isBackward(arc)) {
+                spare[graph.getHead(arc)] += graph.getResidualCapacity(arc);
+            }
+        }
+        for (int arc = graph.getFirstArc(sink); arc < graph.getLastArc(sink); arc++) {
+            if (graph.isBackward(arc)) {
+                spare[graph.getHead(arc)] += graph.getResidualCapacity(graph.getReverse(arc));
+            }
+        }
+        System.arraycopy(spare, 0, capacity, 0, n);
+
+        while (bfs()) {
+            if (SolverMetrics.ENABLED) {
+                metrics.phases++;
+            }
+            for (int v = 0; v < n; v++) {
+                currentArc[v] = graph.getFirstArc(v);
+            }
+            for (int v = 0; v < n; v++) {
+                if (side[v] == BipartiteMaxFlow.LEFT && layer[v] == 0) {
+                    augmentFrom(v);
+                }
+            }
+        }
+
+        // route the matched units through the terminal edges
+        for (int arc = graph.getFirstArc(source); arc < graph.getLastArc(source); arc++) {
+            if (!graph.isBackward(arc)) {
+                int left = graph.getHead(arc);
+                double flow = Math.min(capacity[left] - spare[left], graph.getResidualCapacity(arc));
+                graph.increaseFlow(arc, flow);
+                capacity[left] -= flow;
+            }
+        }
+        for (int arc = graph.getFirstArc(sink); arc < graph.getLastArc(sink); arc++) {
+            if (graph.isBackward(arc)) {
+                int right = graph.getHead(arc);
+                int into = graph.getReverse(arc);
+                double flow = Math.min(capacity[right] - spare[right], graph.getResidualCapacity(into));
+                graph.increaseFlow(into, flow);
+                capacity[right] -= flow;
+            }
+        }
+        return graph.getGraphFlow();
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED. The terminal
+     *         edges count towards the length of every augmenting path.
+     */
+    SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Label the alternating layers: left vertices with spare capacity are layer 0, a right vertex
+     * follows an unmatched edge and a left vertex follows a matched edge back.
+     * @return whether a right vertex with spare capacity was reached
+     */
+    private boolean bfs() {
+        Arrays.fill(layer, 0, n, -1);
+        int last = 0;
+        for (int v = 0; v < n; v++) {
+            if (side[v] == BipartiteMaxFlow.LEFT && spare[v] > 0) {
+                layer[v] = 0;
+                queue[last++] = v;
+            }
+        }
+
+        int limit = Integer.MAX_VALUE;
+        for (int first = 0; first < last; first++) {
+            int v = queue[first];
+            if (layer[v] >= limit) {
+                break;
+            }
+            if (side[v] == BipartiteMaxFlow.RIGHT && spare[v] > 0) {
+                // the shortest augmenting paths end in this layer
+                limit = layer[v];
+                continue;
+            }
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += graph.getLastArc(v) - graph.getFirstArc(v);
+            }
+            for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                int head = graph.getHead(arc);
+                if (layer[head] < 0 && side[head] != BipartiteMaxFlow.OTHER && side[head] != side[v]
+                        && graph.getResidualCapacity(arc) > 0) {
+                    layer[head] = layer[v] + 1;
+                    queue[last++] = head;
+                }
+            }
+        }
+        return limit != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Augment along layered alternating paths from the left vertex until it has no spare
+     * capacity or no path is left. Vertices found to lead nowhere are taken out of the layers.
+     */
+    private void augmentFrom(int start) {
+        int depth = 0;
+        stack[0] = start;
+        while (depth >= 0 && spare[start] > 0) {
+            int v = stack[depth];
+            if (side[v] == BipartiteMaxFlow.RIGHT && spare[v] > 0) {
+                for (int i = 1; i <= depth; i++) {
+                    graph.increaseFlow(pathArc[i], 1);
+                }
+                spare[start]--;
+                spare[v]--;
+                if (SolverMetrics.ENABLED) {
+                    metrics.augmentations++;
+                    metrics.augmentingPathArcs += depth + 2;
+                }
+                depth = 0;
+                continue;
+            }
+
+            int last = graph.getLastArc(v);
+            int arc = currentArc[v];
+            while (arc < last && (layer[graph.getHead(arc)] != layer[v] + 1
+                    || side[graph.getHead(arc)] == BipartiteMaxFlow.OTHER
+                    || graph.getResidualCapacity(arc) <= 0)) {
+                arc++;
+            }
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += Math.min(arc + 1, last) - currentArc[v];
+            }
+            currentArc[v] = arc;
+            if (arc < last) {
+                pathArc[++depth] = arc;
+                stack[depth] = graph.getHead(arc);
+            } else {
+                layer[v] = -1;
+                depth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package maxflow;
+
+import flowgraph.FlowNetwork;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Value of a maximum flow together with a minimum cut: the vertices on the source side and
+ * the forward arcs that leave it, which are all saturated.
+ */
+public class MaxFlowResult {
+    private final double value;
+    private final BitSet sourceSide;
+    private final int[] cutArcs;
+
+    /**
+     * @param value Value of the flow.
+     * @param sourceSide Vertices on the source side of the cut.
+     * @param cutArcs Forward arcs leaving the source side.
+     */
+    public MaxFlowResult(double value, BitSet sourceSide, int[] cutArcs) {
+        this.value = value;
+        this.sourceSide = sourceSide;
+        this.cutArcs = cutArcs;
+    }
+
+    /**
+     * Complete the result from the source side of a minimum cut.
+     * @param graph The graph the cut is in.
+     * @param value Value of the flow.
+     * @param sourceSide Vertices on the source side of the cut.
+     */
+    static MaxFlowResult of(FlowNetwork graph, double value, BitSet sourceSide) {
+        int count = 0;
+        int[] arcs = new int[16];
+        for (int v = sourceSide.nextSetBit(0); v >= 0; v = sourceSide.nextSetBit(v + 1)) {
+            for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                if (!graph.isBackward(arc) && !sourceSide.get(graph.getHead(arc))) {
+                    if (count == arcs.length) {
+                        arcs = Arrays.copyOf(arcs, 2 * count);
+                    }
+                    arcs[count++] = arc;
+                }
+            }
+        }
+        return new MaxFlowResult(value, sourceSide, Arrays.copyOf(arcs, count));
+    }
+
+    /**
+     * For solvers without a search of their own to take the cut from: the source side is
+     * found by a search from the sources along residual arcs of the final flow.
+     * @param graph The graph holding a maximum flow.
+     * @param value Value of the flow.
+     */
+    static MaxFlowResult ofResidual(FlowNetwork graph, double value) {
+        BitSet side = new BitSet(graph.getVerticesNum());
+        int[] sources = graph.getSources();
+        if (sources.length > 0) {
+            int[] queue = new int[graph.getVerticesNum()];
+            for (int i = 0; i < sources.length; i++) {
+                queue[i] = sources[i];
+                side.set(sources[i]);
+            }
+            for (int first = 0, last = sources.length; first < last; first++) {
+                int v = queue[first];
+                for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                    int w = graph.getHead(arc);
+                    if (!side.get(w) && graph.isResidual(arc)) {
+                        side.set(w);
+                        queue[last++] = w;
+                    }
+                }
+            }
+        }
+        return of(graph, value, side);
+    }
+
+    /**
+     * @return Value of the maximum flow, which is the capacity of the cut.
+     */
+    public double getValue() {
+        return this.value;
+    }
+
+    /**
+     * @return The vertices on the source side of the cut. The set is not copied.
+     */
+    public BitSet getSourceSide() {
+        return this.sourceSide;
+    }
+
+    /**
+     * @param vertex Id of the vertex.
+     * @return Whether the vertex is on the source side of the cut.
+     */
+    public boolean isSourceSide(int vertex) {
+        return this.sourceSide.get(vertex);
+    }
+
+    /**
+     * @return The forward arcs from the source side to the sink side, in vertex order.
+     */
+    public int[] getCutArcs() {
+        return this.cutArcs;
+    }
+}
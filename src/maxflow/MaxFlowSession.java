@@ -0,0 +1,710 @@
+package maxflow;
+
+import flowgraph.*;
+import simplegraph.SimpleGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A network that is solved many times with a few capacities changed in between. The residual
+ * graph and its flow are kept, and each solve starts from the flow of the previous one.
+ *
+ * Besides the flow, the session keeps the push-relabel heights of the last solve, which form a
+ * valid labeling: every residual arc drops by at most one, sources are at n and sinks at 0, so
+ * no residual path leads from a source to a sink and the flow is maximum. A capacity decrease
+ * below the flow of an edge takes the extra flow off the edge, which leaves excess at its tail
+ * and deficit at its head but keeps the labeling valid. A capacity increase keeps it valid too,
+ * unless the arc now goes down by more than one, in which case it is saturated, again leaving
+ * an excess and a deficit. The repair then discharges only these vertices: excess is pushed
+ * down admissible arcs and heights are raised, deficit pulls flow from the vertices one above
+ * and heights are lowered, until all of it has reached a terminal or cancelled out. The
+ * labeling stays valid throughout, so the result is a maximum flow again.
+ *
+ * The work of the repair grows with the region it touches. Once it has scanned
+ * LOCAL_WORK_FRACTION of the arcs, the deficits left are cancelled along the flow that causes
+ * them, HighestLabelPreflowPush completes the remaining preflow, and a backward search from
+ * the terminals gives fresh heights for the next solve.
+ *
+ * New edges between vertices already joined by an edge in the same direction are merged into
+ * its arc. Any other new edge or vertex changes the arc structure: the graph is rebuilt at the
+ * next solve with the flow of every edge, the heights and the terminals carried over, so there
+ * is still no solve from zero. Sources and sinks can be chosen with setTerminals on the graph
+ * before the first solve; choosing different ones later makes the next solve start from zero.
+ */
+public class MaxFlowSession {
+    // the repair falls back to a global pass once it has scanned this fraction of the arcs
+    private static final double LOCAL_WORK_FRACTION = 0.5;
+
+    private EdgeList edges;
+    private ResidualGraph graph;
+    private final HighestLabelPreflowPush global = new HighestLabelPreflowPush();
+    private boolean solved;
+
+    // terminals of the last solve, against which the heights are valid
+    private int[] sources;
+    private int[] sinks;
+
+    // every edge of the session, in order of addition; arc is -1 until the next rebuild
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private double[] edgeCapacity;
+    private int[] edgeArc;
+    private int edgesNum;
+
+    // vertices added since the last rebuild, numbered after those of the graph
+    private final HashMap<String, Integer> newIds = new HashMap<>();
+    private final ArrayList<String> newNames = new ArrayList<>();
+    private boolean rebuild;
+
+    // excess of every vertex under the current flow, and the vertices where it may be nonzero
+    private double[] excess;
+    private int[] unbalanced;
+    private int unbalancedNum;
+
+    // forward arcs whose capacity grew since the last solve
+    private int[] grown;
+    private int grownNum;
+
+    // valid heights of the last solve
+    private int[] height;
+
+    // vertices with excess or deficit still to discharge, as a ring buffer
+    private int[] queue;
+    private boolean[] queued;
+    private int queueFirst;
+    private int queueSize;
+
+    // scratch of deficit cancelling: the path of flow arcs being followed, the position of every
+    // vertex on it or -1, and a current arc per vertex visited in the pass
+    private int[] stack;
+    private int[] pathArc;
+    private int[] position;
+    private int[] currentArc;
+    private int[] stamp;
+    private int epoch;
+
+    public MaxFlowSession(SimpleGraph simpleGraph) {
+        this(EdgeList.of(simpleGraph));
+    }
+
+    /**
+     * @param edges Edges of the network, with ids in input order.
+     */
+    public MaxFlowSession(EdgeList edges) {
+        int m = edges.getEdgesNum();
+        this.edgeFrom = new int[Math.max(m, 16)];
+        this.edgeTo = new int[this.edgeFrom.length];
+        this.edgeCapacity = new double[this.edgeFrom.length];
+        this.edgeArc = new int[this.edgeFrom.length];
+        for (int e = 0; e < m; e++) {
+            this.edgeFrom[e] = edges.getFrom(e);
+            this.edgeTo[e] = edges.getTo(e);
+            this.edgeCapacity[e] = edges.getCapacity(e);
+        }
+        this.edgesNum = m;
+        this.grown = new int[16];
+        this.unbalanced = new int[16];
+        this.layout(edges);
+    }
+
+    /**
+     * @return The residual graph holding the current flow. Choose its terminals before the
+     *         first solve.
+     */
+    public ResidualGraph getGraph() {
+        this.applyRebuild();
+        return this.graph;
+    }
+
+    /**
+     * @return Number of edges, including removed ones, which keep their ids.
+     */
+    public int getEdgesNum() {
+        return this.edgesNum;
+    }
+
+    /**
+     * @param edge Id of the edge.
+     * @return Current capacity of the edge.
+     */
+    public double getCapacity(int edge) {
+        return this.edgeCapacity[edge];
+    }
+
+    /**
+     * Add an edge, and its end vertices if they are new.
+     * @param tail Name of the vertex the edge leaves.
+     * @param head Name of the vertex the edge enters.
+     * @param capacity Capacity of the edge.
+     * @return Id of the new edge.
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public int addEdge(String tail, String head, double capacity) {
+        checkCapacity(capacity);
+        int from = this.vertexId(tail);
+        int to = this.vertexId(head);
+        if (this.edgesNum == this.edgeFrom.length) {
+            int length = 2 * this.edgesNum;
+            this.edgeFrom = Arrays.copyOf(this.edgeFrom, length);
+            this.edgeTo = Arrays.copyOf(this.edgeTo, length);
+            this.edgeCapacity = Arrays.copyOf(this.edgeCapacity, length);
+            this.edgeArc = Arrays.copyOf(this.edgeArc, length);
+        }
+        int edge = this.edgesNum++;
+        this.edgeFrom[edge] = from;
+        this.edgeTo[edge] = to;
+        this.edgeCapacity[edge] = capacity;
+        this.edgeArc[edge] = -1;
+
+        int arc = this.rebuild ? -1 : this.findArc(from, to);
+        if (arc < 0) {
+            this.rebuild = true;
+        } else {
+            this.edgeArc[edge] = arc;
+            this.graph.setCapacity(arc, this.graph.getCapacity(arc) + capacity);
+            this.addGrown(arc);
+        }
+        return edge;
+    }
+
+    /**
+     * Change the capacity of an edge.
+     * @param edge Id of the edge.
+     * @param capacity New capacity.
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public void setCapacity(int edge, double capacity) {
+        checkCapacity(capacity);
+        double delta = capacity - this.edgeCapacity[edge];
+        this.edgeCapacity[edge] = capacity;
+        int arc = this.edgeArc[edge];
+        if (arc < 0 || delta == 0) {
+            // applied by the rebuild
+            return;
+        }
+        double removed = this.graph.setCapacity(arc, this.graph.getCapacity(arc) + delta);
+        if (removed > 0) {
+            this.addExcess(this.graph.getTail(arc), removed);
+            this.addExcess(this.graph.getHead(arc), -removed);
+        }
+        if (delta > 0) {
+            this.addGrown(arc);
+        }
+    }
+
+    /**
+     * Remove an edge by setting its capacity to zero. Its id stays taken.
+     * @param edge Id of the edge.
+     */
+    public void removeEdge(int edge) {
+        this.setCapacity(edge, 0);
+    }
+
+    /**
+     * Bring the flow up to date with the changes since the last solve.
+     * @return The value of the maximum flow.
+     */
+    public double findMaxFlow() throws Exception {
+        this.applyRebuild();
+        if (this.graph.getSource() < 0 || this.graph.getSink() < 0) {
+            return this.graph.getGraphFlow();
+        }
+        if (!this.solved || !Arrays.equals(this.sources, this.graph.getSources())
+                || !Arrays.equals(this.sinks, this.graph.getSinks())) {
+            // no heights yet, or heights for other terminals, whose flow is no flow for these
+            this.graph.reset();
+            this.unbalancedNum = 0;
+            this.global.findMaxFlow(this.graph);
+            Arrays.fill(this.excess, 0);
+            this.relabelGlobally();
+            this.sources = this.graph.getSources();
+            this.sinks = this.graph.getSinks();
+            this.solved = true;
+        } else if (!this.repair()) {
+            this.completeGlobally();
+        }
+        this.grownNum = 0;
+        return this.graph.getGraphFlow();
+    }
+
+    private static void checkCapacity(double capacity) {
+        if (!(capacity >= 0)) {
+            throw new IllegalArgumentException("Capacity must be non-negative: " + capacity);
+        }
+    }
+
+    private int vertexId(String name) {
+        int id = this.edges.getVertexId(name);
+        if (id >= 0) {
+            return id;
+        }
+        Integer added = this.newIds.get(name);
+        if (added == null) {
+            added = this.edges.getVerticesNum() + this.newNames.size();
+            this.newIds.put(name, added);
+            this.newNames.add(name);
+            this.rebuild = true;
+        }
+        return added;
+    }
+
+    /**
+     * @return The forward arc from one vertex to the other, or -1 if there is none.
+     */
+    private int findArc(int from, int to) {
+        if (from >= this.graph.getVerticesNum() || to >= this.graph.getVerticesNum()) {
+            return -1;
+        }
+        for (int arc = this.graph.getFirstArc(from); arc < this.graph.getLastArc(from); arc++) {
+            if (!this.graph.isBackward(arc) && this.graph.getHead(arc) == to) {
+                return arc;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lay out a new residual graph for the edges and take the forward arc of every edge from
+     * it. Excess and heights are kept by vertex, new vertices start balanced at height 0.
+     */
+    private void layout(EdgeList edges) {
+        this.edges = edges;
+        this.graph = new ResidualGraph(edges);
+        int n = edges.getVerticesNum();
+        for (int e = 0; e < edges.getEdgesNum(); e++) {
+            this.edgeArc[e] = this.graph.getEdgeArc(e);
+        }
+        this.excess = this.excess == null ? new double[n] : Arrays.copyOf(this.excess, n);
+        this.height = this.height == null ? new int[n] : Arrays.copyOf(this.height, n);
+        this.queue = new int[n];
+        this.queued = new boolean[n];
+        this.stack = new int[n];
+        this.pathArc = new int[n];
+        this.position = new int[n];
+        Arrays.fill(this.position, -1);
+        this.currentArc = new int[n];
+        this.stamp = new int[n];
+        this.epoch = 0;
+    }
+
+    /**
+     * Lay out the graph again if edges or vertices were added, giving every edge its own arc
+     * and carrying its flow and the terminals over. Merged edges share out the flow of their
+     * arc in order, so an arc that was saturated leaves all its edges saturated and the
+     * heights stay valid.
+     */
+    private void applyRebuild() {
+        if (!this.rebuild) {
+            return;
+        }
+        ResidualGraph old = this.graph;
+        double[] remaining = new double[old.getArcsNum()];
+        for (int arc = 0; arc < remaining.length; arc++) {
+            remaining[arc] = old.getFlow(arc);
+        }
+        boolean[] grownArc = new boolean[old.getArcsNum()];
+        for (int i = 0; i < this.grownNum; i++) {
+            grownArc[this.grown[i]] = true;
+        }
+        double[] flow = new double[this.edgesNum];
+        boolean[] grownEdge = new boolean[this.edgesNum];
+        for (int e = 0; e < this.edgesNum; e++) {
+            int arc = this.edgeArc[e];
+            if (arc >= 0) {
+                flow[e] = Math.min(remaining[arc], this.edgeCapacity[e]);
+                remaining[arc] -= flow[e];
+            }
+            grownEdge[e] = arc < 0 || grownArc[arc];
+        }
+
+        String[] names = new String[this.edges.getVerticesNum() + this.newNames.size()];
+        for (int v = 0; v < this.edges.getVerticesNum(); v++) {
+            names[v] = this.edges.getName(v);
+        }
+        for (int i = 0; i < this.newNames.size(); i++) {
+            names[this.edges.getVerticesNum() + i] = this.newNames.get(i);
+        }
+        int[] sources = old.getSources();
+        int[] sinks = old.getSinks();
+        this.layout(new EdgeList(names, Arrays.copyOf(this.edgeFrom, this.edgesNum),
+                Arrays.copyOf(this.edgeTo, this.edgesNum), Arrays.copyOf(this.edgeCapacity, this.edgesNum)));
+        if (sources.length > 0 && sinks.length > 0) {
+            this.graph.setTerminals(sources, sinks);
+        }
+
+        this.grownNum = 0;
+        for (int e = 0; e < this.edgesNum; e++) {
+            int arc = this.edgeArc[e];
+            if (flow[e] > 0) {
+                this.graph.increaseFlow(arc, flow[e]);
+            }
+            if (grownEdge[e]) {
+                this.addGrown(arc);
+            }
+        }
+        this.newIds.clear();
+        this.newNames.clear();
+        this.rebuild = false;
+        if (this.solved) {
+            this.shiftHeights(old.getVerticesNum());
+        }
+    }
+
+    /**
+     * Keep the sources at height n after new vertices: lift every height from the old n up by
+     * the number of new vertices, and saturate the residual arcs that this leaves going down
+     * by more than one, which can only leave vertices at the old n.
+     */
+    private void shiftHeights(int oldN) {
+        int shift = this.graph.getVerticesNum() - oldN;
+        if (shift == 0) {
+            return;
+        }
+        for (int v = 0; v < oldN; v++) {
+            if (this.height[v] >= oldN) {
+                this.height[v] += shift;
+            }
+        }
+        for (int v = 0; v < oldN; v++) {
+            if (this.height[v] != oldN + shift) {
+                continue;
+            }
+            for (int arc = this.graph.getFirstArc(v); arc < this.graph.getLastArc(v); arc++) {
+                double residual = this.graph.getResidualCapacity(arc);
+                int head = this.graph.getHead(arc);
+                if (residual > 0 && this.height[v] > this.height[head] + 1) {
+                    this.graph.increaseFlow(arc, residual);
+                    this.addExcess(v, -residual);
+                    this.addExcess(head, residual);
+                }
+            }
+        }
+    }
+
+    private void addExcess(int vertex, double amount) {
+        if (this.graph.isTerminal(vertex)) {
+            return;
+        }
+        if (this.excess[vertex] == 0) {
+            if (this.unbalancedNum == this.unbalanced.length) {
+                this.unbalanced = Arrays.copyOf(this.unbalanced, 2 * this.unbalancedNum);
+            }
+            this.unbalanced[this.unbalancedNum++] = vertex;
+        }
+        this.excess[vertex] += amount;
+    }
+
+    private void addGrown(int arc) {
+        if (!this.solved) {
+            return;
+        }
+        if (this.grownNum == this.grown.length) {
+            this.grown = Arrays.copyOf(this.grown, 2 * this.grownNum);
+        }
+        this.grown[this.grownNum++] = arc;
+    }
+
+    /**
+     * Restore a maximum flow by discharging the vertices the changes unbalanced.
+     * @return false if the repair reached the work limit and left vertices unbalanced
+     */
+    private boolean repair() {
+        // a grown arc going down by more than one would break the labeling, saturate it
+        for (int i = 0; i < this.grownNum; i++) {
+            int arc = this.grown[i];
+            double residual = this.graph.getResidualCapacity(arc);
+            int tail = this.graph.getTail(arc);
+            int head = this.graph.getHead(arc);
+            if (residual > 0 && this.height[tail] > this.height[head] + 1) {
+                this.graph.increaseFlow(arc, residual);
+                this.addExcess(tail, -residual);
+                this.addExcess(head, residual);
+            }
+        }
+        for (int i = 0; i < this.unbalancedNum; i++) {
+            int v = this.unbalanced[i];
+            if (this.excess[v] != 0) {
+                this.enqueue(v);
+            }
+        }
+        this.unbalancedNum = 0;
+
+        long limit = (long) (LOCAL_WORK_FRACTION * this.graph.getArcsNum());
+        long work = 0;
+        while (this.queueSize > 0) {
+            if (work > limit) {
+                while (this.queueSize > 0) {
+                    this.dequeue();
+                }
+                return false;
+            }
+            work += this.discharge(this.dequeue());
+        }
+        return true;
+    }
+
+    /**
+     * Discharge the excess of the vertex down admissible arcs, or pull its deficit from the
+     * vertices one above, changing its height whenever a pass over its arcs leaves some.
+     * @return the number of arcs scanned
+     */
+    private long discharge(int vertex) {
+        long scanned = 0;
+        int first = this.graph.getFirstArc(vertex);
+        int last = this.graph.getLastArc(vertex);
+        while (this.excess[vertex] != 0) {
+            boolean surplus = this.excess[vertex] > 0;
+            int h = this.height[vertex];
+            // height the vertex is moved to if the pass leaves part of its imbalance
+            int next = surplus ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+            for (int arc = first; arc < last && this.excess[vertex] != 0; arc++) {
+                int w = this.graph.getHead(arc);
+                if (surplus) {
+                    double residual = this.graph.getResidualCapacity(arc);
+                    if (residual <= 0) {
+                        continue;
+                    }
+                    if (this.height[w] == h - 1) {
+                        double amount = Math.min(residual, this.excess[vertex]);
+                        this.graph.increaseFlow(arc, amount);
+                        this.excess[vertex] -= amount;
+                        this.transfer(w, amount);
+                    } else {
+                        next = Math.min(next, this.height[w] + 1);
+                    }
+                } else {
+                    int in = this.graph.getReverse(arc);
+                    double residual = this.graph.getResidualCapacity(in);
+                    if (residual <= 0) {
+                        continue;
+                    }
+                    if (this.height[w] == h + 1) {
+                        double amount = Math.min(residual, -this.excess[vertex]);
+                        this.graph.increaseFlow(in, amount);
+                        this.excess[vertex] += amount;
+                        this.transfer(w, -amount);
+                    } else {
+                        next = Math.max(next, this.height[w] - 1);
+                    }
+                }
+            }
+            scanned += last - first;
+            if (this.excess[vertex] != 0) {
+                if (next == Integer.MAX_VALUE || next == Integer.MIN_VALUE) {
+                    // excess always came in along an arc that can take it back, and deficit
+                    // always went out along one
+                    throw new IllegalStateException("Vertex " + this.graph.getVertexName(vertex)
+                            + " is unbalanced without residual arcs");
+                }
+                this.height[vertex] = next;
+            }
+        }
+        return scanned;
+    }
+
+    /**
+     * Add flow moved into a vertex, or out of it if negative, and queue it if it is left unbalanced.
+     */
+    private void transfer(int vertex, double amount) {
+        if (this.graph.isTerminal(vertex)) {
+            return;
+        }
+        this.excess[vertex] += amount;
+        if (this.excess[vertex] != 0) {
+            this.enqueue(vertex);
+        }
+    }
+
+    private void enqueue(int vertex) {
+        if (!this.queued[vertex]) {
+            this.queued[vertex] = true;
+            int last = this.queueFirst + this.queueSize;
+            this.queue[last < this.queue.length ? last : last - this.queue.length] = vertex;
+            this.queueSize++;
+        }
+    }
+
+    private int dequeue() {
+        int vertex = this.queue[this.queueFirst];
+        this.queued[vertex] = false;
+        this.queueFirst = this.queueFirst + 1 < this.queue.length ? this.queueFirst + 1 : 0;
+        this.queueSize--;
+        return vertex;
+    }
+
+    /**
+     * The global pass: cancel every deficit along the flow that causes it, saturate the arcs out
+     * of the sources, then complete the preflow with highest-label push-relabel and label the
+     * result afresh.
+     */
+    private void completeGlobally() {
+        int n = this.graph.getVerticesNum();
+        int mark = this.nextEpoch();
+        for (int v = 0; v < n; v++) {
+            if (this.excess[v] < 0) {
+                this.cancelDeficit(v, mark);
+            }
+        }
+        // the cancelled flow may leave residual arcs out of the sources, which the completion
+        // expects saturated
+        for (int source : this.graph.getSources()) {
+            for (int arc = this.graph.getFirstArc(source); arc < this.graph.getLastArc(source); arc++) {
+                int head = this.graph.getHead(arc);
+                double residual = this.graph.getResidualCapacity(arc);
+                if (residual > 0 && !this.graph.isSource(head)) {
+                    this.graph.increaseFlow(arc, residual);
+                    if (!this.graph.isTerminal(head)) {
+                        this.excess[head] += residual;
+                    }
+                }
+            }
+        }
+        this.global.completePreflow(this.graph, this.excess);
+        // the terminals collected their part of the preflow, which the flow itself records
+        Arrays.fill(this.excess, 0);
+        this.relabelGlobally();
+    }
+
+    /**
+     * Remove the deficit of the vertex by taking flow off paths of flow-carrying arcs out of it,
+     * each ending at a terminal or at a vertex with excess, cancelling cycles of flow met on the
+     * way. Flow that the repair pushed back into a source ends there too.
+     * Vertices whose flow arcs all lead to dead ends are dead for the rest of the pass.
+     * @param mark epoch of the pass, vertices stamped with it have a valid current arc
+     * @throws IllegalStateException if the deficit cannot be cancelled, which a flow that
+     *         conserves everywhere else rules out
+     */
+    private void cancelDeficit(int vertex, int mark) {
+        int depth = 0;
+        this.stack[0] = vertex;
+        this.position[vertex] = 0;
+        this.visit(vertex, mark);
+        while (this.excess[vertex] < 0) {
+            if (depth < 0) {
+                throw new IllegalStateException("Deficit at " + this.graph.getVertexName(vertex)
+                        + " reaches no terminal or excess along the flow");
+            }
+            int v = this.stack[depth];
+            if (depth > 0 && (this.graph.isTerminal(v) || this.excess[v] > 0)) {
+                double amount = -this.excess[vertex];
+                if (!this.graph.isTerminal(v)) {
+                    amount = Math.min(amount, this.excess[v]);
+                }
+                for (int i = 1; i <= depth; i++) {
+                    amount = Math.min(amount, this.graph.getFlow(this.pathArc[i]));
+                }
+                for (int i = 1; i <= depth; i++) {
+                    this.graph.increaseFlow(this.graph.getReverse(this.pathArc[i]), amount);
+                    this.position[this.stack[i]] = -1;
+                }
+                this.excess[vertex] += amount;
+                if (!this.graph.isTerminal(v)) {
+                    this.excess[v] -= amount;
+                }
+                depth = 0;
+                continue;
+            }
+
+            int last = this.graph.getLastArc(v);
+            int arc = this.currentArc[v];
+            while (arc < last && (this.graph.getFlow(arc) <= 0 || this.isDead(this.graph.getHead(arc), mark))) {
+                arc++;
+            }
+            this.currentArc[v] = arc;
+            if (arc == last) {
+                this.position[v] = -1;
+                depth--;
+                continue;
+            }
+
+            int head = this.graph.getHead(arc);
+            this.visit(head, mark);
+            if (this.position[head] >= 0) {
+                // a cycle of flow: cancel it and back up to where it starts
+                double amount = this.graph.getFlow(arc);
+                for (int i = this.position[head] + 1; i <= depth; i++) {
+                    amount = Math.min(amount, this.graph.getFlow(this.pathArc[i]));
+                }
+                this.graph.increaseFlow(this.graph.getReverse(arc), amount);
+                for (int i = this.position[head] + 1; i <= depth; i++) {
+                    this.graph.increaseFlow(this.graph.getReverse(this.pathArc[i]), amount);
+                    this.position[this.stack[i]] = -1;
+                }
+                depth = this.position[head];
+                continue;
+            }
+            this.pathArc[++depth] = arc;
+            this.stack[depth] = head;
+            this.position[head] = depth;
+        }
+        for (int i = 0; i <= depth; i++) {
+            this.position[this.stack[i]] = -1;
+        }
+    }
+
+    private void visit(int vertex, int mark) {
+        if (this.stamp[vertex] != mark) {
+            this.stamp[vertex] = mark;
+            this.currentArc[vertex] = this.graph.getFirstArc(vertex);
+        }
+    }
+
+    private boolean isDead(int vertex, int mark) {
+        return this.stamp[vertex] == mark && this.currentArc[vertex] == this.graph.getLastArc(vertex);
+    }
+
+    /**
+     * Set every height to the residual distance to the nearest sink, or n plus the distance to
+     * the nearest source for the vertices that reach no sink, or 2n for those that reach
+     * neither. For a maximum flow no source reaches a sink, so this labeling is valid, arcs out
+     * of the sources included, which the heights of the engine need not be once it has returned
+     * excess to them.
+     */
+    private void relabelGlobally() {
+        int n = this.graph.getVerticesNum();
+        Arrays.fill(this.height, 0, n, 2 * n);
+        int last = 0;
+        for (int sink : this.graph.getSinks()) {
+            this.height[sink] = 0;
+            this.queue[last++] = sink;
+        }
+        for (int source : this.graph.getSources()) {
+            this.height[source] = n;
+        }
+        last = this.backwardBfs(0, last);
+        int first = last;
+        for (int source : this.graph.getSources()) {
+            this.queue[last++] = source;
+        }
+        this.backwardBfs(first, last);
+    }
+
+    /**
+     * Label the unlabeled vertices by their residual distance to the labeled vertices in the queue.
+     * @return the new end of the queue
+     */
+    private int backwardBfs(int first, int last) {
+        int unlabeled = 2 * this.graph.getVerticesNum();
+        for (; first < last; first++) {
+            int v = this.queue[first];
+            for (int arc = this.graph.getFirstArc(v); arc < this.graph.getLastArc(v); arc++) {
+                int w = this.graph.getHead(arc);
+                if (this.height[w] == unlabeled && this.graph.getResidualCapacity(this.graph.getReverse(arc)) > 0) {
+                    this.height[w] = this.height[v] + 1;
+                    this.queue[last++] = w;
+                }
+            }
+        }
+        return last;
+    }
+
+    private int nextEpoch() {
+        if (++this.epoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.stamp, 0);
+            this.epoch = 1;
+        }
+        return this.epoch;
+    }
+}
@@ -0,0 +1,42 @@
+package maxflow;
+
+import flowgraph.ResidualGraph;
+
+/**
+ * A max-flow engine over a residual graph.
+ *
+ * An instance keeps its labels, queues and other scratch arrays from one solve to the next
+ * and only reallocates them for a graph with more vertices than it has seen, so solving a
+ * stream of similarly sized graphs with one instance allocates next to nothing once the
+ * arrays have grown. Together with ResidualGraph.reset, which restores the capacities in
+ * place, the same graph can be solved again without any allocation. Instances are not
+ * thread safe; use one per thread.
+ */
+public interface MaxFlowSolver {
+    /**
+     * Find a maximum flow from the source to the sink, which is left in the graph.
+     * @param graph Residual graph without flow, as built or after reset.
+     * @return Value of the flow.
+     */
+    double findMaxFlow(ResidualGraph graph) throws Exception;
+
+    /**
+     * Find the value of a maximum flow together with a minimum cut. Engines that can read the
+     * cut off an intermediate state may stop there and leave a preflow in the graph.
+     * @param graph Residual graph without flow, as built or after reset.
+     */
+    MaxFlowResult solve(ResidualGraph graph) throws Exception;
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED.
+     */
+    SolverMetrics getMetrics();
+
+    /**
+     * Whether the engine solves graphs with several sources or sinks, see
+     * FlowNetwork.setTerminals(int[], int[]). The others reject such graphs.
+     */
+    default boolean supportsMultipleTerminals() {
+        return false;
+    }
+}
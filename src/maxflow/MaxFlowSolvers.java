@@ -0,0 +1,85 @@
+package maxflow;
+
+import flowgraph.FlowNetwork;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the max-flow engines by name, in the order they were registered. The built-in
+ * engines are registered under their class names, with the two Pseudoflow variants as
+ * PseudoflowHighest and PseudoflowLowest and BipartiteMaxFlow as Bipartite.
+ *
+ * Every engine solves a ResidualGraph with double capacities. Only Dinic also solves an
+ * IntegralResidualGraph, the int or long graph that IntegralResidualGraph.create lays out
+ * for integral capacities, with exact arithmetic and smaller arrays; the other engines have
+ * no integral path, so callers that want it pick Dinic directly rather than through the
+ * registry, as tcss543 does.
+ */
+public class MaxFlowSolvers {
+    private static final Map<String, Supplier<? extends MaxFlowSolver>> SOLVERS = new LinkedHashMap<>();
+
+    static {
+        register("FordFulkerson", FordFulkerson::new);
+        register("ScalingFordFulkerson", ScalingFordFulkerson::new);
+        register("PreflowPush", PreflowPush::new);
+        register("Dinic", Dinic::new);
+        register("HighestLabelPreflowPush", HighestLabelPreflowPush::new);
+        register("EdmondsKarp", EdmondsKarp::new);
+        register("ParallelPreflowPush", ParallelPreflowPush::new);
+        register("BoykovKolmogorov", BoykovKolmogorov::new);
+        register("PseudoflowHighest", () -> new Pseudoflow(Pseudoflow.Variant.HIGHEST_LABEL));
+        register("PseudoflowLowest", () -> new Pseudoflow(Pseudoflow.Variant.LOWEST_LABEL));
+        register("Bipartite", BipartiteMaxFlow::new);
+    }
+
+    private MaxFlowSolvers() {
+    }
+
+    /**
+     * Add an engine, or replace the one registered under the same name.
+     * @param name Name of the engine.
+     * @param factory Creates a new instance of the engine.
+     */
+    public static synchronized void register(String name, Supplier<? extends MaxFlowSolver> factory) {
+        SOLVERS.put(name, factory);
+    }
+
+    /**
+     * @param name Name of the engine, in any case.
+     * @return A new instance of the engine.
+     * @throws IllegalArgumentException if no engine has the name
+     */
+    public static synchronized MaxFlowSolver create(String name) {
+        for (Map.Entry<String, Supplier<? extends MaxFlowSolver>> entry : SOLVERS.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue().get();
+            }
+        }
+        throw new IllegalArgumentException("Unknown algorithm " + name + ", expected one of "
+                + String.join(", ", SOLVERS.keySet()));
+    }
+
+    /**
+     * Reject a graph with several sources or sinks, for the engines built around a single pair.
+     * @param graph The graph to solve.
+     * @param solver Name of the engine, for the message.
+     * @throws IllegalArgumentException if the graph has several sources or sinks
+     */
+    static void requireSingleTerminals(FlowNetwork graph, String solver) {
+        if (graph.hasMultipleTerminals()) {
+            throw new IllegalArgumentException(solver + " needs a single source and sink, "
+                    + "use PreflowPush, HighestLabelPreflowPush or Dinic for several");
+        }
+    }
+
+    /**
+     * @return Names of the registered engines, in registration order.
+     */
+    public static synchronized List<String> names() {
+        return new ArrayList<>(SOLVERS.keySet());
+    }
+}
@@ -0,0 +1,503 @@
+package maxflow;
+
+import flowgraph.CostResidualGraph;
+import flowgraph.EdgeList;
+import flowgraph.EdgeListReader;
+
+import java.util.Arrays;
+
+/**
+ * Minimum-cost maximum flow: of all maximum flows from the source to the sink, one of least
+ * total cost under the integer arc costs of a CostResidualGraph. Two methods are offered.
+ *
+ * SUCCESSIVE_SHORTEST_PATHS augments along a cheapest residual path at a time. The paths are
+ * found by Dijkstra's algorithm on costs reduced by Johnson potentials, which keep every
+ * residual arc at a non-negative reduced cost, so the keys popped never decrease and the
+ * queue is a radix heap. Negative costs get their first potentials from Bellman-Ford, and a
+ * residual cycle of negative cost is rejected, as shortest paths are undefined with one.
+ *
+ * COST_SCALING is Goldberg's cost-scaling push-relabel, for large instances. It takes a
+ * maximum flow from Dinic and then removes its excess cost: every refine phase makes the flow
+ * epsilon-optimal for an epsilon ALPHA times smaller than the last, by saturating the arcs of
+ * negative reduced cost and pushing the excess this creates along admissible arcs, lowering
+ * prices where there are none. Costs are multiplied by n + 1, so the phase with epsilon = 1
+ * leaves an optimal flow. Negative cycles are cancelled like any other excess cost.
+ */
+public class MinCostFlow {
+    /**
+     * How the cheapest flow is found.
+     */
+    public enum Method {
+        SUCCESSIVE_SHORTEST_PATHS, COST_SCALING
+    }
+
+    // epsilon is divided by this between refine phases
+    private static final int ALPHA = 16;
+
+    private final Method method;
+
+    private CostResidualGraph graph;
+    private int n;
+
+    // price of every vertex: Johnson potentials, or the prices of cost scaling
+    private long[] potential;
+
+    // shortest path search: distances valid where stamp == epoch, and the arc into each vertex
+    private long[] dist;
+    private int[] parentArc;
+    private int[] stamp;
+    private int epoch;
+    private RadixHeap heap;
+
+    // cost scaling: excess of every vertex over the flow at the start of the phase
+    private double[] excess;
+    private int[] currentArc;
+    // active vertices as a ring buffer, a vertex is in it at most once
+    private int[] active;
+    private boolean[] queued;
+    private int activeFirst;
+    private int activeSize;
+    private Dinic dinic;
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
+    public MinCostFlow() {
+        this(Method.SUCCESSIVE_SHORTEST_PATHS);
+    }
+
+    /**
+     * @param method how the cheapest flow is found
+     */
+    public MinCostFlow(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * Find a maximum flow of minimum cost, which is left in the graph; its cost is given by
+     * graph.getFlowCost().
+     * @param graph Residual graph without flow.
+     * @return Value of the flow.
+     * @throws IllegalArgumentException if successive shortest paths meets a negative-cost cycle,
+     *         the costs are too large to scale without overflow, or the graph has several
+     *         sources or sinks
+     */
+    public double findMinCostFlow(CostResidualGraph graph) throws Exception {
+        MaxFlowSolvers.requireSingleTerminals(graph, "MinCostFlow");
+        this.graph = graph;
+        n = graph.getVerticesNum();
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+        int source = graph.getSource();
+        int sink = graph.getSink();
+        if (source < 0 || sink < 0) {
+            return graph.getGraphFlow();
+        }
+        allocate();
+        if (method == Method.SUCCESSIVE_SHORTEST_PATHS) {
+            successiveShortestPaths(source, sink);
+            return metrics.finish("MinCostFlowShortestPaths", graph.getGraphFlow());
+        }
+        costScaling();
+        return metrics.finish("MinCostFlowCostScaling", graph.getGraphFlow());
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED. Phases are
+     *         the refine phases of cost scaling, whose initial max-flow is included.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Solve a graph file with a cost column and print the flow and its cost.
+     * Usage: java maxflow.MinCostFlow [ssp|scaling] file
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1 && args.length != 2) {
+            System.err.println("Usage: java maxflow.MinCostFlow [ssp|scaling] file");
+            System.exit(2);
+        }
+        Method method = Method.SUCCESSIVE_SHORTEST_PATHS;
+        if (args.length == 2) {
+            if (args[0].equals("scaling")) {
+                method = Method.COST_SCALING;
+            } else if (!args[0].equals("ssp")) {
+                throw new IllegalArgumentException("Unknown method " + args[0] + ", expected ssp or scaling");
+            }
+        }
+        EdgeList edges = EdgeListReader.read(args[args.length - 1]);
+        CostResidualGraph graph = new CostResidualGraph(edges);
+        long begin = System.currentTimeMillis();
+        double flow = new MinCostFlow(method).findMinCostFlow(graph);
+        System.out.println("Max flow: " + flow + " cost: " + graph.getFlowCost() + " in "
+                + (System.currentTimeMillis() - begin) + " ms");
+    }
+
+    /**
+     * Grow the arrays to the graph, keeping arrays that are large enough.
+     */
+    private void allocate() {
+        if (potential == null || potential.length < n) {
+            potential = new long[n];
+            dist = new long[n];
+            parentArc = new int[n];
+            stamp = new int[n];
+            epoch = 0;
+            excess = new double[n];
+            currentArc = new int[n];
+            active = new int[n];
+            queued = new boolean[n];
+        }
+        if (heap == null) {
+            heap = new RadixHeap();
+        }
+    }
+
+    private void successiveShortestPaths(int source, int sink) {
+        Arrays.fill(potential, 0, n, 0);
+        for (int arc = 0; arc < graph.getArcsNum(); arc++) {
+            if (graph.isResidual(arc) && graph.getCost(arc) < 0) {
+                bellmanFord();
+                break;
+            }
+        }
+        while (dijkstra(source, sink)) {
+            augment(source, sink);
+        }
+    }
+
+    /**
+     * Set the potentials to the distances from a virtual root joined to every vertex at cost
+     * zero, so every residual arc gets a non-negative reduced cost. This is the queue-based
+     * variant; a vertex queued n times lies on a negative cycle.
+     */
+    private void bellmanFord() {
+        int[] count = currentArc;
+        Arrays.fill(count, 0, n, 0);
+        activeFirst = activeSize = 0;
+        for (int v = 0; v < n; v++) {
+            queued[v] = false;
+            enqueue(v);
+        }
+        while (activeSize > 0) {
+            int v = dequeue();
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += graph.getLastArc(v) - graph.getFirstArc(v);
+            }
+            for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                if (!graph.isResidual(arc)) {
+                    continue;
+                }
+                int w = graph.getHead(arc);
+                long d = potential[v] + graph.getCost(arc);
+                if (d < potential[w]) {
+                    potential[w] = d;
+                    if (!queued[w]) {
+                        if (++count[w] >= n) {
+                            throw new IllegalArgumentException(
+                                    "Negative cost cycle through " + graph.getVertexName(w) + ", use COST_SCALING");
+                        }
+                        enqueue(w);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Dijkstra on reduced costs from the source, stopping when the sink is settled, then add
+     * the distances to the potentials. Vertices not settled by then are at least as far as the
+     * sink and get its distance, which keeps every residual reduced cost non-negative.
+     * @return whether the sink was reached
+     */
+    private boolean dijkstra(int source, int sink) {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        if (SolverMetrics.ENABLED) {
+            metrics.phases++;
+        }
+        heap.clear();
+        stamp[source] = epoch;
+        dist[source] = 0;
+        heap.push(source, 0);
+        long sinkDist = -1;
+        while (!heap.isEmpty()) {
+            int v = heap.pop();
+            long d = heap.lastKey();
+            if (d > dist[v]) {
+                // a stale entry, v was pushed again with a smaller key
+                continue;
+            }
+            if (v == sink) {
+                sinkDist = d;
+                break;
+            }
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += graph.getLastArc(v) - graph.getFirstArc(v);
+            }
+            for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                if (!graph.isResidual(arc)) {
+                    continue;
+                }
+                int w = graph.getHead(arc);
+                long candidate = d + graph.getCost(arc) + potential[v] - potential[w];
+                if (stamp[w] != epoch || candidate < dist[w]) {
+                    stamp[w] = epoch;
+                    dist[w] = candidate;
+                    parentArc[w] = arc;
+                    heap.push(w, candidate);
+                }
+            }
+        }
+        if (sinkDist < 0) {
+            return false;
+        }
+        for (int v = 0; v < n; v++) {
+            potential[v] += stamp[v] == epoch ? Math.min(dist[v], sinkDist) : sinkDist;
+        }
+        return true;
+    }
+
+    /**
+     * Push the bottleneck along the path of parent arcs from the source to the sink.
+     */
+    private void augment(int source, int sink) {
+        double bottleneck = Double.MAX_VALUE;
+        int length = 0;
+        for (int v = sink; v != source; v = graph.getTail(parentArc[v])) {
+            bottleneck = Math.min(bottleneck, graph.getResidualCapacity(parentArc[v]));
+            length++;
+        }
+        for (int v = sink; v != source; v = graph.getTail(parentArc[v])) {
+            graph.increaseFlow(parentArc[v], bottleneck);
+        }
+        if (SolverMetrics.ENABLED) {
+            metrics.augmentations++;
+            metrics.augmentingPathArcs += length;
+        }
+    }
+
+    private void costScaling() throws Exception {
+        if (dinic == null) {
+            dinic = new Dinic();
+        }
+        dinic.findMaxFlow(graph);
+        if (SolverMetrics.ENABLED) {
+            metrics.add(dinic.getMetrics());
+        }
+
+        long scale = n + 1L;
+        long maxCost = graph.getMaxCost();
+        // prices fall by O(n) epsilon per phase at most, the first epsilon being maxCost * scale
+        if (maxCost > Long.MAX_VALUE / (8 * scale * scale)) {
+            throw new IllegalArgumentException("Costs up to " + maxCost + " are too large to scale by " + scale);
+        }
+        Arrays.fill(potential, 0, n, 0);
+        for (long epsilon = maxCost * scale; epsilon > 1; ) {
+            epsilon = Math.max(1, epsilon / ALPHA);
+            refine(epsilon, scale);
+        }
+    }
+
+    /**
+     * Turn the flow, which is epsilon * ALPHA-optimal, into an epsilon-optimal one of the same
+     * value: saturate every residual arc of negative reduced cost, then discharge the vertices
+     * left with excess until every vertex is balanced again.
+     */
+    private void refine(long epsilon, long scale) {
+        if (SolverMetrics.ENABLED) {
+            metrics.phases++;
+        }
+        Arrays.fill(excess, 0, n, 0);
+        for (int v = 0; v < n; v++) {
+            for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                if (graph.isResidual(arc) && reducedCost(arc, v, scale) < 0) {
+                    double flow = graph.getResidualCapacity(arc);
+                    graph.increaseFlow(arc, flow);
+                    excess[v] -= flow;
+                    excess[graph.getHead(arc)] += flow;
+                }
+            }
+        }
+
+        activeFirst = activeSize = 0;
+        for (int v = 0; v < n; v++) {
+            queued[v] = false;
+            currentArc[v] = graph.getFirstArc(v);
+            if (excess[v] > 0) {
+                enqueue(v);
+            }
+        }
+        while (activeSize > 0) {
+            discharge(dequeue(), epsilon, scale);
+        }
+    }
+
+    /**
+     * Push the excess of the vertex along admissible arcs, those with residual capacity and a
+     * negative reduced cost, relabeling whenever the current arc runs off the end of the list.
+     */
+    private void discharge(int vertex, long epsilon, long scale) {
+        int last = graph.getLastArc(vertex);
+        while (excess[vertex] > 0) {
+            int arc = currentArc[vertex];
+            int start = arc;
+            for (; arc < last; arc++) {
+                if (graph.isResidual(arc) && reducedCost(arc, vertex, scale) < 0) {
+                    int head = graph.getHead(arc);
+                    double residual = graph.getResidualCapacity(arc);
+                    double flow = Math.min(residual, excess[vertex]);
+                    if (SolverMetrics.ENABLED) {
+                        metrics.pushes++;
+                        if (flow == residual) {
+                            metrics.saturatingPushes++;
+                        }
+                    }
+                    graph.increaseFlow(arc, flow);
+                    excess[vertex] -= flow;
+                    excess[head] += flow;
+                    if (excess[head] > 0) {
+                        enqueue(head);
+                    }
+                    if (excess[vertex] <= 0) {
+                        break;
+                    }
+                }
+            }
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += Math.min(arc + 1, last) - start;
+            }
+            if (arc < last) {
+                currentArc[vertex] = arc;
+                return;
+            }
+            relabel(vertex, epsilon, scale);
+        }
+    }
+
+    /**
+     * Lower the price of the vertex until its cheapest residual arc has reduced cost -epsilon.
+     * No residual arc has a negative reduced cost before, so the price drops by at least epsilon
+     * and no residual arc ends up below -epsilon.
+     */
+    private void relabel(int vertex, long epsilon, long scale) {
+        if (SolverMetrics.ENABLED) {
+            metrics.relabels++;
+            metrics.arcsScanned += graph.getLastArc(vertex) - graph.getFirstArc(vertex);
+        }
+        long price = Long.MIN_VALUE;
+        for (int arc = graph.getFirstArc(vertex); arc < graph.getLastArc(vertex); arc++) {
+            if (graph.isResidual(arc)) {
+                price = Math.max(price, potential[graph.getHead(arc)] - graph.getCost(arc) * scale);
+            }
+        }
+        potential[vertex] = price - epsilon;
+        currentArc[vertex] = graph.getFirstArc(vertex);
+    }
+
+    private long reducedCost(int arc, int tail, long scale) {
+        return graph.getCost(arc) * scale + potential[tail] - potential[graph.getHead(arc)];
+    }
+
+    private void enqueue(int vertex) {
+        if (!queued[vertex]) {
+            queued[vertex] = true;
+            active[(activeFirst + activeSize) % n] = vertex;
+            activeSize++;
+        }
+    }
+
+    private int dequeue() {
+        int vertex = active[activeFirst];
+        queued[vertex] = false;
+        activeFirst = (activeFirst + 1) % n;
+        activeSize--;
+        return vertex;
+    }
+
+    /**
+     * Monotone priority queue of vertices by long keys, for keys that are never smaller than
+     * the last key popped. Bucket 0 holds the keys equal to the last key, bucket i > 0 the keys
+     * whose highest bit differing from it is bit i - 1. Popping from an empty bucket 0 moves the
+     * lowest non-empty bucket down around its minimum, so every key moves at most 64 times.
+     * Entries are never updated: a vertex is pushed again with its smaller key, and the caller
+     * skips the stale entries.
+     */
+    private static final class RadixHeap {
+        private final int[][] vertices = new int[65][];
+        private final long[][] keys = new long[65][];
+        private final int[] size = new int[65];
+        private int count;
+        private long last;
+
+        RadixHeap() {
+            for (int b = 0; b < 65; b++) {
+                this.vertices[b] = new int[16];
+                this.keys[b] = new long[16];
+            }
+        }
+
+        void clear() {
+            Arrays.fill(this.size, 0);
+            this.count = 0;
+            this.last = 0;
+        }
+
+        boolean isEmpty() {
+            return this.count == 0;
+        }
+
+        void push(int vertex, long key) {
+            this.add(this.bucket(key), vertex, key);
+            this.count++;
+        }
+
+        /**
+         * @return a vertex of the smallest key, which lastKey returns afterwards
+         */
+        int pop() {
+            if (this.size[0] == 0) {
+                int b = 1;
+                while (this.size[b] == 0) {
+                    b++;
+                }
+                int[] bucketVertices = this.vertices[b];
+                long[] bucketKeys = this.keys[b];
+                int bucketSize = this.size[b];
+                long min = Long.MAX_VALUE;
+                for (int i = 0; i < bucketSize; i++) {
+                    min = Math.min(min, bucketKeys[i]);
+                }
+                this.last = min;
+                // every key of the bucket agrees with the new last key above bit b - 1
+                this.size[b] = 0;
+                for (int i = 0; i < bucketSize; i++) {
+                    this.add(this.bucket(bucketKeys[i]), bucketVertices[i], bucketKeys[i]);
+                }
+            }
+            this.count--;
+            return this.vertices[0][--this.size[0]];
+        }
+
+        long lastKey() {
+            return this.last;
+        }
+
+        private int bucket(long key) {
+            return 64 - Long.numberOfLeadingZeros(key ^ this.last);
+        }
+
+        private void add(int b, int vertex, long key) {
+            if (this.size[b] == this.vertices[b].length) {
+                this.vertices[b] = Arrays.copyOf(this.vertices[b], 2 * this.size[b]);
+                this.keys[b] = Arrays.copyOf(this.keys[b], 2 * this.size[b]);
+            }
+            this.vertices[b][this.size[b]] = vertex;
+            this.keys[b][this.size[b]++] = key;
+        }
+    }
+}
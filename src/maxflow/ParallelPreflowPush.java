@@ -0,0 +1,486 @@
+package maxflow;
+
+import flowgraph.*;
+import simplegraph.GraphInput;
+import simplegraph.SimpleGraph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Multi-threaded lock-free push-relabel in the asynchronous style of Goldberg-Tarjan and Hong.
+ *
+ * Residual capacities, excesses and heights live in atomic primitive arrays. An active vertex
+ * is claimed by exactly one task at a time through a flag; the task repeatedly pushes to its
+ * lowest residual neighbour or lifts itself one above it. Only the owner of a vertex ever
+ * lowers its excess or the residual capacity of its arcs, other threads only add to them,
+ * which is what makes the unsynchronized reads of Hong's algorithm safe. Vertices that gain
+ * excess are forked as new tasks on a work-stealing ForkJoinPool.
+ *
+ * Once enough relabel work has accumulated the workers park their vertices and a global
+ * relabel runs as a level-synchronous BFS whose frontier is expanded in parallel.
+ *
+ * The worker pool is started by the first solve and kept for the later ones. close shuts it
+ * down; a solve after that starts a new one. The workers are daemon threads, so a solver that
+ * is never closed does not keep the JVM alive, but its threads live as long as the solver.
+ */
+public class ParallelPreflowPush implements MaxFlowSolver, AutoCloseable {
+    // global relabel once the relabel work exceeds ALPHA * n + m
+    private static final int ALPHA = 6;
+    // relabel work is published to the shared counter in batches of this size
+    private static final int WORK_BATCH = 256;
+    // frontier vertices handled by one BFS task
+    private static final int BFS_GRAIN = 512;
+
+    private final int threads;
+
+    private ResidualGraph graph;
+    private int n;
+    private int source;
+    private int sink;
+    private int unlabeled;
+
+    // residual capacities and excesses as raw double bits
+    private AtomicLongArray residual;
+    private AtomicLongArray excess;
+    private AtomicIntegerArray height;
+    // 1 while a vertex is owned by a task or parked for the global relabel
+    private AtomicIntegerArray active;
+    // the two BFS frontiers of the global relabel
+    private int[] frontier;
+    private int[] next;
+
+    private AtomicLong work;
+    private long threshold;
+    private volatile boolean paused;
+    // vertices parked for the global relabel, each at most once as its active flag stays set,
+    // and the ones being restarted after it
+    private int[] parked;
+    private int[] restarted;
+    private AtomicInteger parkedNum;
+    private ForkJoinPool pool;
+
+    // discharge tasks forked and not yet finished, the main thread waits for this to reach zero
+    private AtomicInteger pending;
+    private final Object quiescent = new Object();
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
+    public ParallelPreflowPush() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads number of worker threads
+     */
+    public ParallelPreflowPush(int threads) {
+        this.threads = threads;
+    }
+
+    public double findMaxFlow(SimpleGraph simpleGraph) throws Exception {
+        return findMaxFlow(new ResidualGraph(simpleGraph));
+    }
+
+    public double findMaxFlow(ResidualGraph graph) throws Exception {
+        MaxFlowSolvers.requireSingleTerminals(graph, "ParallelPreflowPush");
+        this.graph = graph;
+        n = graph.getVerticesNum();
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+        source = graph.getSource();
+        sink = graph.getSink();
+        if (source < 0 || sink < 0) {
+            return graph.getGraphFlow();
+        }
+        unlabeled = 2 * n;
+
+        int m = graph.getArcsNum();
+        // arrays from the last solve are kept if large enough, and so is the worker pool
+        if (residual == null || residual.length() < m) {
+            residual = new AtomicLongArray(m);
+        }
+        for (int arc = 0; arc < m; arc++) {
+            residual.set(arc, Double.doubleToRawLongBits(graph.getResidualCapacity(arc)));
+        }
+        if (excess == null || excess.length() < n) {
+            excess = new AtomicLongArray(n);
+            height = new AtomicIntegerArray(n);
+            active = new AtomicIntegerArray(n);
+            frontier = new int[n];
+            next = new int[n];
+            parked = new int[n];
+            restarted = new int[n];
+        } else {
+            for (int v = 0; v < n; v++) {
+                excess.set(v, 0);
+                active.set(v, 0);
+            }
+        }
+        work = new AtomicLong();
+        threshold = ALPHA * (long) n + m / 2;
+        parkedNum = new AtomicInteger();
+        pending = new AtomicInteger();
+        if (pool == null) {
+            pool = new ForkJoinPool(threads);
+        }
+
+        // start with a preflow saturating every edge out of the source
+        for (int arc = graph.getFirstArc(source); arc < graph.getLastArc(source); arc++) {
+            if (graph.isBackward(arc)) {
+                continue;
+            }
+            double flow = residual(arc);
+            add(residual, arc, -flow);
+            add(residual, graph.getReverse(arc), flow);
+            add(excess, source, -flow);
+            add(excess, graph.getHead(arc), flow);
+            if (SolverMetrics.ENABLED) {
+                metrics.pushes++;
+                metrics.saturatingPushes++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            if (v != source && v != sink && value(excess, v) > 0) {
+                active.set(v, 1);
+                park(v);
+            }
+        }
+
+        // alternate between parallel discharging and global relabels until nothing is active;
+        // the workers are all done when pending reaches zero, so the parked vertices can be
+        // swapped out before they are restarted
+        while (parkedNum.get() > 0) {
+            globalRelabel();
+            work.set(0);
+            paused = false;
+            int[] vertices = parked;
+            parked = restarted;
+            restarted = vertices;
+            int count = parkedNum.getAndSet(0);
+            for (int i = 0; i < count; i++) {
+                pending.incrementAndGet();
+                pool.execute(new Discharge(vertices[i]));
+            }
+            synchronized (quiescent) {
+                while (pending.get() > 0) {
+                    quiescent.wait();
+                }
+            }
+        }
+
+        // copy the final residual capacities back into the graph
+        for (int arc = 0; arc < m; arc++) {
+            if (!graph.isBackward(arc)) {
+                double flow = graph.getResidualCapacity(arc) - residual(arc);
+                if (flow != 0) {
+                    graph.increaseFlow(arc, flow);
+                }
+            }
+        }
+        return metrics.finish("ParallelPreflowPush", graph.getGraphFlow());
+    }
+
+    /**
+     * Solve and return the minimum cut found by a search from the source over the final flow.
+     * The heights are updated without locks and may be stale when the workers stop, so they
+     * are not used for the cut.
+     */
+    public MaxFlowResult solve(ResidualGraph graph) throws Exception {
+        return MaxFlowResult.ofResidual(graph, findMaxFlow(graph));
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED. Every task
+     *         counts on its own and adds its counts when it releases its vertex.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Shut the worker pool down. Closing twice does nothing.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Task owning one active vertex.
+     */
+    private final class Discharge extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int vertex;
+
+        Discharge(int vertex) {
+            this.vertex = vertex;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                discharge(vertex);
+            } finally {
+                if (pending.decrementAndGet() == 0) {
+                    synchronized (quiescent) {
+                        quiescent.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Push or relabel the vertex until its excess is gone, then release it. The excess is
+     * checked again after the release, because another thread may have pushed into the
+     * vertex after the last read and failed to claim it while this task still owned it.
+     * Excess left by rounding that cannot get back to the source raises the vertex to 2n; it
+     * is then given up, and the vertex is claimed again only if more excess arrives.
+     */
+    private void discharge(int vertex) {
+        int first = graph.getFirstArc(vertex);
+        int last = graph.getLastArc(vertex);
+        long localWork = 0;
+        SolverMetrics counts = SolverMetrics.ENABLED ? new SolverMetrics() : null;
+        while (true) {
+            double e = value(excess, vertex);
+            double stranded = 0;
+            while (e > 0) {
+                if (paused) {
+                    work.addAndGet(localWork);
+                    if (SolverMetrics.ENABLED) {
+                        metrics.add(counts);
+                    }
+                    park(vertex);
+                    return;
+                }
+
+                // find the lowest neighbour over a residual arc
+                int minHeight = Integer.MAX_VALUE;
+                int minArc = -1;
+                for (int arc = first; arc < last; arc++) {
+                    if (residual(arc) > 0) {
+                        int h = height.get(graph.getHead(arc));
+                        if (h < minHeight) {
+                            minHeight = h;
+                            minArc = arc;
+                        }
+                    }
+                }
+                if (SolverMetrics.ENABLED) {
+                    counts.arcsScanned += last - first;
+                }
+                if (minArc < 0 || minHeight + 1 >= unlabeled) {
+                    // no way back to the source, only rounding leaves excess here
+                    height.set(vertex, unlabeled);
+                    stranded = e;
+                    break;
+                }
+
+                if (height.get(vertex) > minHeight) {
+                    // push
+                    int head = graph.getHead(minArc);
+                    double capacity = residual(minArc);
+                    double flow = Math.min(e, capacity);
+                    if (SolverMetrics.ENABLED) {
+                        counts.pushes++;
+                        if (flow == capacity) {
+                            counts.saturatingPushes++;
+                        }
+                    }
+                    add(residual, minArc, -flow);
+                    add(residual, graph.getReverse(minArc), flow);
+                    add(excess, vertex, -flow);
+                    add(excess, head, flow);
+                    if (head != source && head != sink && active.compareAndSet(head, 0, 1)) {
+                        pending.incrementAndGet();
+                        new Discharge(head).fork();
+                    }
+                } else {
+                    // relabel
+                    height.set(vertex, minHeight + 1);
+                    if (SolverMetrics.ENABLED) {
+                        counts.relabels++;
+                    }
+                    localWork += ALPHA + last - first;
+                    if (localWork >= WORK_BATCH) {
+                        if (work.addAndGet(localWork) > threshold) {
+                            paused = true;
+                        }
+                        localWork = 0;
+                    }
+                }
+                e = value(excess, vertex);
+            }
+
+            active.set(vertex, 0);
+            if (value(excess, vertex) <= stranded || !active.compareAndSet(vertex, 0, 1)) {
+                work.addAndGet(localWork);
+                if (SolverMetrics.ENABLED) {
+                    metrics.add(counts);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hand a vertex that still owns its active flag over to the next global relabel.
+     */
+    private void park(int vertex) {
+        parked[parkedNum.getAndIncrement()] = vertex;
+    }
+
+    /**
+     * Recompute exact heights: the residual distance to the sink, or n plus the distance to
+     * the source for vertices that cannot reach the sink. Runs while every worker is parked.
+     */
+    private void globalRelabel() {
+        if (SolverMetrics.ENABLED) {
+            synchronized (metrics) {
+                metrics.globalRelabels++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            height.set(v, unlabeled);
+        }
+        height.set(sink, 0);
+        height.set(source, n);
+
+        int[] frontier = this.frontier;
+        int[] next = this.next;
+        frontier[0] = sink;
+        for (int size = 1, level = 0; size > 0; level++) {
+            size = expand(frontier, size, next, level);
+            int[] swap = frontier;
+            frontier = next;
+            next = swap;
+        }
+        frontier[0] = source;
+        for (int size = 1, level = n; size > 0; level++) {
+            size = expand(frontier, size, next, level);
+            int[] swap = frontier;
+            frontier = next;
+            next = swap;
+        }
+    }
+
+    /**
+     * Label every unlabeled vertex with a residual arc into the frontier with level + 1.
+     * @return size of the next frontier
+     */
+    private int expand(int[] frontier, int size, int[] next, int level) {
+        AtomicInteger nextSize = new AtomicInteger();
+        pool.invoke(new Expand(frontier, 0, size, next, nextSize, level));
+        return nextSize.get();
+    }
+
+    /**
+     * Task expanding a slice of the BFS frontier.
+     */
+    private final class Expand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+        private final int[] next;
+        private final AtomicInteger nextSize;
+        private final int level;
+
+        Expand(int[] frontier, int from, int to, int[] next, AtomicInteger nextSize, int level) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.next = next;
+            this.nextSize = nextSize;
+            this.level = level;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BFS_GRAIN) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Expand(frontier, from, middle, next, nextSize, level),
+                        new Expand(frontier, middle, to, next, nextSize, level));
+                return;
+            }
+            long scanned = 0;
+            for (int i = from; i < to; i++) {
+                int v = frontier[i];
+                scanned += graph.getLastArc(v) - graph.getFirstArc(v);
+                for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                    int w = graph.getHead(arc);
+                    if (residual(graph.getReverse(arc)) > 0 && height.compareAndSet(w, unlabeled, level + 1)) {
+                        next[nextSize.getAndIncrement()] = w;
+                    }
+                }
+            }
+            if (SolverMetrics.ENABLED) {
+                synchronized (metrics) {
+                    metrics.arcsScanned += scanned;
+                }
+            }
+        }
+    }
+
+    private double residual(int arc) {
+        return value(residual, arc);
+    }
+
+    private static double value(AtomicLongArray array, int index) {
+        return Double.longBitsToDouble(array.get(index));
+    }
+
+    private static void add(AtomicLongArray array, int index, double delta) {
+        long current;
+        do {
+            current = array.get(index);
+        } while (!array.compareAndSet(index, current,
+                Double.doubleToRawLongBits(Double.longBitsToDouble(current) + delta)));
+    }
+
+    /**
+     * Report the speedup of the solver over thread counts 1, 2, 4, ... on each given graph file.
+     * Each point is the best of three solves.
+     */
+    public static void main(String[] args) throws Exception {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (String path : args) {
+            SimpleGraph simpleGraph = new SimpleGraph();
+            GraphInput.LoadSimpleGraph(simpleGraph, path);
+            ResidualGraph graph = new ResidualGraph(simpleGraph);
+
+            long baseline = 0;
+            for (int threads = 1; ; threads = Math.min(2 * threads, maxThreads)) {
+                long best = Long.MAX_VALUE;
+                double flow = 0;
+                for (int run = 0; run < 3; run++) {
+                    graph.reset();
+                    long begin = System.nanoTime();
+                    try (ParallelPreflowPush solver = new ParallelPreflowPush(threads)) {
+                        flow = solver.findMaxFlow(graph);
+                    }
+                    best = Math.min(best, System.nanoTime() - begin);
+                }
+                if (threads == 1) {
+                    baseline = best;
+                }
+                System.out.printf("%s threads: %d Max flow: %s in %.1f ms speedup %.2f%n",
+                        path, threads, flow, best / 1e6, (double) baseline / best);
+                if (threads == maxThreads) {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -3,41 +3,152 @@ package maxflow;
 import flowgraph.*;
 import simplegraph.SimpleGraph;
 
-public class PreflowPush {
+import java.util.Arrays;
+
+public class PreflowPush implements MaxFlowSolver {
+    // kept between solves, and only grown
+    private VertexQueue exceedQueue;
+    private double[] excess;
+    private int[] height;
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
     public double findMaxFlow(SimpleGraph simpleGraph) throws Exception {
-        NetworkGraph graph = new NetworkGraph(simpleGraph);
-        VertexQueue exceedQueue = new VertexQueue();
+        return findMaxFlow(new ResidualGraph(simpleGraph));
+    }
 
-        // start with initial labeling and preflow
-        NetworkVertex source = graph.getSource();
-        source.setHeight(graph.getVerticesNum());
-        for (NetworkEdge edge : source.getEdges()) {
-            edge.increaseFlow(edge.getResidualCapacity());
-            exceedQueue.add(edge.getSecondEndpoint());
+    public double findMaxFlow(ResidualGraph graph) throws Exception {
+        allocate(graph);
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+
+        // start with initial labeling and preflow; several sources are one virtual source, so
+        // all of them are at height n and every edge out of them is saturated, except the edges
+        // between them, which are inside the virtual source
+        int[] sources = graph.getSources();
+        for (int source : sources) {
+            height[source] = graph.getVerticesNum();
+        }
+        for (int source : sources) {
+            for (int arc = graph.getFirstArc(source); arc < graph.getLastArc(source); arc++) {
+                if (graph.isBackward(arc) || graph.isSource(graph.getHead(arc))) {
+                    continue;
+                }
+                double flow = graph.getResidualCapacity(arc);
+                graph.increaseFlow(arc, flow);
+                excess[source] -= flow;
+                excess[graph.getHead(arc)] += flow;
+                if (excess[graph.getHead(arc)] > 0) {
+                    // a vertex queued without excess would be relabeled forever
+                    exceedQueue.add(graph.getHead(arc));
+                }
+            }
         }
 
         // while there is a excess node
         while (!exceedQueue.isEmpty()) {
-            NetworkVertex vertex = exceedQueue.pop();
-            NetworkEdge edge = vertex.getLowerEdge();
-            if (edge != null) {
+            int vertex = exceedQueue.pop();
+            int arc = getLowerArc(graph, height, vertex);
+            if (arc >= 0) {
                 // push
-                double flow = Math.min(edge.getResidualCapacity(), vertex.getExcess());
-                edge.increaseFlow(flow);
+                int head = graph.getHead(arc);
+                double flow = Math.min(graph.getResidualCapacity(arc), excess[vertex]);
+                if (SolverMetrics.ENABLED) {
+                    metrics.pushes++;
+                    if (flow == graph.getResidualCapacity(arc)) {
+                        metrics.saturatingPushes++;
+                    }
+                }
+                graph.increaseFlow(arc, flow);
+                excess[vertex] -= flow;
+                excess[head] += flow;
 
-                if (edge.getFirstEndpoint().getExcess() > 0) {
-                    exceedQueue.add(edge.getFirstEndpoint());
+                if (excess[vertex] > 0) {
+                    exceedQueue.add(vertex);
                 }
-                if (edge.getSecondEndpoint().getExcess() > 0) {
-                    exceedQueue.add(edge.getSecondEndpoint());
+                if (excess[head] > 0) {
+                    exceedQueue.add(head);
                 }
-            } else {
-                // relabel
-                vertex.setHeight(vertex.getHeight() + 1);
+            } else if (relabel(graph, vertex)) {
                 exceedQueue.add(vertex);
             }
         }
-        return graph.getGraphFlow();
+        return metrics.finish("PreflowPush", graph.getGraphFlow());
+    }
+
+    /**
+     * Solve and return the minimum cut found by a search from the source over the final flow.
+     * The heights of this variant are not kept valid, as it pushes to any lower neighbour, so
+     * they cannot give the cut.
+     */
+    public MaxFlowResult solve(ResidualGraph graph) throws Exception {
+        return MaxFlowResult.ofResidual(graph, findMaxFlow(graph));
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
     }
-}
 
+    public boolean supportsMultipleTerminals() {
+        return true;
+    }
+
+    /**
+     * Grow the arrays to the graph, or clear the part of them that it uses.
+     */
+    private void allocate(ResidualGraph graph) {
+        int n = graph.getVerticesNum();
+        if (excess == null || excess.length < n) {
+            exceedQueue = new VertexQueue(graph);
+            excess = new double[n];
+            height = new int[n];
+        } else {
+            exceedQueue.reset(graph);
+            Arrays.fill(excess, 0, n, 0);
+            Arrays.fill(height, 0, n, 0);
+        }
+    }
+
+    /**
+     * Raise the vertex to one above its lowest residual neighbour. A vertex with excess can
+     * always reach a source, so it stays below 2n; only excess left over by rounding, with no
+     * residual path back, drives it up to 2n, and is then given up.
+     * @return false if the vertex has no residual arc or reached 2n and is dropped
+     */
+    private boolean relabel(ResidualGraph graph, int vertex) {
+        int limit = 2 * graph.getVerticesNum();
+        int newHeight = limit;
+        for (int arc = graph.getFirstArc(vertex); arc < graph.getLastArc(vertex); arc++) {
+            if (graph.getResidualCapacity(arc) > 0) {
+                newHeight = Math.min(newHeight, height[graph.getHead(arc)] + 1);
+            }
+        }
+        if (SolverMetrics.ENABLED) {
+            metrics.relabels++;
+            metrics.arcsScanned += graph.getLastArc(vertex) - graph.getFirstArc(vertex);
+        }
+        height[vertex] = newHeight;
+        return newHeight < limit;
+    }
+
+    /**
+     * Get arc leaving the vertex such that the other end point of that arc
+     * has height less than this vertex.
+     * @return Arc if there is a neighboring vertex with height less than this vertex, otherwise -1.
+     */
+    private int getLowerArc(ResidualGraph graph, int[] height, int vertex) {
+        for (int arc = graph.getFirstArc(vertex); arc < graph.getLastArc(vertex); arc++) {
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned++;
+            }
+            if (graph.getResidualCapacity(arc) > 0 && height[graph.getHead(arc)] < height[vertex]) {
+                return arc;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,578 @@
+package maxflow;
+
+import flowgraph.*;
+import simplegraph.SimpleGraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Hochbaum's pseudoflow algorithm (HPF).
+ *
+ * Phase one saturates every arc out of the source and into the sink and keeps the vertices
+ * in a forest of normalized trees, where only a root may carry excess or deficit. Trees whose
+ * root has excess are strong, the others weak. A strong root with label L is processed by
+ * looking, in its tree, for a residual arc from a vertex of label L to a vertex of label L - 1
+ * in another tree. Such a merger arc hangs the strong tree below the other one, and the excess
+ * of the strong root is pushed along the path to the new root, splitting the tree at every
+ * arc that gets saturated. Vertices without a merger arc are relabeled children first. When
+ * no vertex is left one label below a strong root, its tree can never merge again and is
+ * lifted to label n. Phase one ends when every strong tree is lifted, and the lifted vertices
+ * are then the source side of a minimum cut.
+ *
+ * Phase two recovers a flow: deficits are cancelled along flow-carrying paths into the sink,
+ * which leaves a preflow that is completed by push-relabel.
+ */
+public class Pseudoflow implements MaxFlowSolver {
+    /**
+     * Order in which strong roots are processed.
+     */
+    public enum Variant {
+        LOWEST_LABEL, HIGHEST_LABEL
+    }
+
+    private final Variant variant;
+
+    private ResidualGraph graph;
+    private int n;
+    private int source;
+    private int sink;
+
+    private double[] excess;
+    private int[] label;
+    private int[] labelCount;
+    private int[] currentArc;
+
+    // the normalized trees: parent of each vertex, -1 for a root, and the arc into the parent
+    private int[] parent;
+    private int[] parentArc;
+    // children as doubly linked sibling lists, and the next child to scan while processing
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] prevSibling;
+    private int[] nextScan;
+
+    // strong roots of each label below n, singly linked through rootNext
+    private int[] rootFirst;
+    private int[] rootNext;
+    private int lowestRoot;
+    private int highestRoot;
+
+    // flow-carrying paths of cancelDeficits, and the vertices that have none left
+    private int[] stack;
+    private int[] pathArc;
+    private int[] position;
+    private boolean[] dead;
+
+    // phase two, kept so its arrays are reused as well
+    private HighestLabelPreflowPush completion;
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
+    public Pseudoflow() {
+        this(Variant.HIGHEST_LABEL);
+    }
+
+    /**
+     * @param variant order in which strong roots are processed
+     */
+    public Pseudoflow(Variant variant) {
+        this.variant = variant;
+    }
+
+    public double findMaxFlow(SimpleGraph simpleGraph) throws Exception {
+        return findMaxFlow(new ResidualGraph(simpleGraph));
+    }
+
+    public double findMaxFlow(ResidualGraph graph) throws Exception {
+        if (graph.getSource() < 0 || graph.getSink() < 0) {
+            return graph.getGraphFlow();
+        }
+        findMinCut(graph);
+        cancelDeficits();
+        if (completion == null) {
+            completion = new HighestLabelPreflowPush();
+        }
+        double flow = completion.completePreflow(graph, excess);
+        if (SolverMetrics.ENABLED) {
+            metrics.add(completion.getMetrics());
+        }
+        return metrics.finish(variant == Variant.HIGHEST_LABEL ? "PseudoflowHighest" : "PseudoflowLowest", flow);
+    }
+
+    /**
+     * Run only the first phase and return its minimum cut, valued by the capacity of its arcs.
+     * The graph is left holding the pseudoflow, as by findMinCut.
+     */
+    public MaxFlowResult solve(ResidualGraph graph) throws Exception {
+        boolean[] sourceSide = findMinCut(graph);
+        BitSet side = new BitSet(n);
+        for (int v = 0; v < n; v++) {
+            if (sourceSide[v]) {
+                side.set(v);
+            }
+        }
+        MaxFlowResult cut = MaxFlowResult.of(graph, 0, side);
+        double capacity = 0;
+        for (int arc : cut.getCutArcs()) {
+            capacity += graph.getCapacity(arc);
+        }
+        return new MaxFlowResult(capacity, side, cut.getCutArcs());
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED. Merger arc
+     *         searches count as arcs scanned, tree lifts as gaps, and the push-relabel of
+     *         phase two is included.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean[] findMinCut(SimpleGraph simpleGraph) throws Exception {
+        return findMinCut(new ResidualGraph(simpleGraph));
+    }
+
+    /**
+     * Run only the first phase, which finds a minimum cut but leaves a pseudoflow in the graph.
+     * @param graph the residual graph
+     * @return for every vertex, whether it is on the source side of the cut
+     */
+    public boolean[] findMinCut(ResidualGraph graph) throws Exception {
+        MaxFlowSolvers.requireSingleTerminals(graph, "Pseudoflow");
+        this.graph = graph;
+        n = graph.getVerticesNum();
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+        source = graph.getSource();
+        sink = graph.getSink();
+
+        boolean[] sourceSide = new boolean[n];
+        if (source < 0 || sink < 0) {
+            if (source >= 0) {
+                sourceSide[source] = true;
+            }
+            return sourceSide;
+        }
+
+        initialize();
+        for (int root = nextRoot(); root >= 0; root = nextRoot()) {
+            processRoot(root);
+        }
+
+        for (int v = 0; v < n; v++) {
+            sourceSide[v] = v == source || (v != sink && label[v] == n);
+        }
+        return sourceSide;
+    }
+
+    /**
+     * Saturate the arcs out of the source and into the sink and make every other vertex
+     * a tree of its own, strong with label 1 if it received excess and weak with label 0 otherwise.
+     */
+    private void initialize() {
+        if (excess == null || excess.length < n) {
+            excess = new double[n];
+            label = new int[n];
+            labelCount = new int[n + 1];
+            currentArc = new int[n];
+            parent = new int[n];
+            parentArc = new int[n];
+            firstChild = new int[n];
+            nextSibling = new int[n];
+            prevSibling = new int[n];
+            nextScan = new int[n];
+            rootFirst = new int[n + 1];
+            rootNext = new int[n];
+        } else {
+            // the other arrays are written before they are read
+            Arrays.fill(excess, 0, n, 0);
+            Arrays.fill(label, 0, n, 0);
+            Arrays.fill(labelCount, 0, n + 1, 0);
+        }
+
+        for (int arc = graph.getFirstArc(source); arc < graph.getLastArc(source); arc++) {
+            if (!graph.isBackward(arc)) {
+                double flow = graph.getResidualCapacity(arc);
+                graph.increaseFlow(arc, flow);
+                excess[source] -= flow;
+                excess[graph.getHead(arc)] += flow;
+            }
+        }
+        for (int arc = graph.getFirstArc(sink); arc < graph.getLastArc(sink); arc++) {
+            if (graph.isBackward(arc)) {
+                int into = graph.getReverse(arc);
+                double flow = graph.getResidualCapacity(into);
+                graph.increaseFlow(into, flow);
+                excess[graph.getTail(into)] -= flow;
+                excess[sink] += flow;
+            }
+        }
+
+        for (int h = 0; h <= n; h++) {
+            rootFirst[h] = -1;
+        }
+        lowestRoot = n;
+        highestRoot = 0;
+        for (int v = 0; v < n; v++) {
+            parent[v] = -1;
+            firstChild[v] = -1;
+            currentArc[v] = graph.getFirstArc(v);
+            if (v == source || v == sink) {
+                continue;
+            }
+            label[v] = excess[v] > 0 ? 1 : 0;
+            labelCount[label[v]]++;
+            if (excess[v] > 0) {
+                addRoot(v);
+            }
+        }
+    }
+
+    /**
+     * Take the next strong root to process, lifting the strong trees that can no longer merge.
+     * @return a strong root, or -1 when phase one is over
+     */
+    private int nextRoot() {
+        if (variant == Variant.HIGHEST_LABEL) {
+            for (; highestRoot > 0; highestRoot--) {
+                int root = takeRoot(highestRoot);
+                if (root >= 0) {
+                    return root;
+                }
+            }
+        } else {
+            for (; lowestRoot < n; lowestRoot++) {
+                int root = takeRoot(lowestRoot);
+                if (root >= 0) {
+                    return root;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Remove a root from the bucket of the given label, or lift the whole bucket to n if no
+     * vertex has the label below it.
+     * @return the root, or -1 if the bucket ended up empty
+     */
+    private int takeRoot(int h) {
+        while (rootFirst[h] >= 0) {
+            int root = rootFirst[h];
+            rootFirst[h] = rootNext[root];
+            if (parent[root] >= 0 || label[root] != h) {
+                // merged or lifted since it was added
+                continue;
+            }
+            if (labelCount[h - 1] > 0) {
+                return root;
+            }
+            liftTree(root);
+        }
+        return -1;
+    }
+
+    /**
+     * Look for a merger arc from the strong tree, scanning the vertices with the label of the
+     * root depth first and relabeling each one whose children are done. On success the tree
+     * is merged and the excess of the root pushed towards the new root, otherwise the root
+     * goes back to the bucket of its new label.
+     */
+    private void processRoot(int root) {
+        int vertex = root;
+        nextScan[root] = firstChild[root];
+        int arc = findMergerArc(root, root);
+        if (arc >= 0) {
+            merge(vertex, arc);
+            pushExcess(root);
+            return;
+        }
+        checkChildren(root);
+
+        while (vertex >= 0) {
+            while (nextScan[vertex] >= 0) {
+                int child = nextScan[vertex];
+                nextScan[vertex] = nextSibling[child];
+                vertex = child;
+                nextScan[vertex] = firstChild[vertex];
+                arc = findMergerArc(vertex, root);
+                if (arc >= 0) {
+                    merge(vertex, arc);
+                    pushExcess(root);
+                    return;
+                }
+                checkChildren(vertex);
+            }
+            vertex = parent[vertex];
+            if (vertex >= 0) {
+                checkChildren(vertex);
+            }
+        }
+        if (label[root] < n) {
+            addRoot(root);
+        }
+    }
+
+    /**
+     * Find a residual arc from the vertex to a vertex one label lower in another tree,
+     * starting at its current arc.
+     * @return the arc, or -1 if there is none
+     */
+    private int findMergerArc(int vertex, int root) {
+        int target = label[vertex] - 1;
+        int last = graph.getLastArc(vertex);
+        for (int arc = currentArc[vertex]; arc < last; arc++) {
+            int head = graph.getHead(arc);
+            if (head != source && head != sink && label[head] == target
+                    && graph.getResidualCapacity(arc) > 0 && rootOf(head) != root) {
+                if (SolverMetrics.ENABLED) {
+                    metrics.arcsScanned += arc + 1 - currentArc[vertex];
+                }
+                currentArc[vertex] = arc;
+                return arc;
+            }
+        }
+        if (SolverMetrics.ENABLED) {
+            metrics.arcsScanned += last - currentArc[vertex];
+        }
+        currentArc[vertex] = last;
+        return -1;
+    }
+
+    /**
+     * Relabel the vertex unless one of its unscanned children still has its label.
+     */
+    private void checkChildren(int vertex) {
+        for (; nextScan[vertex] >= 0; nextScan[vertex] = nextSibling[nextScan[vertex]]) {
+            if (label[nextScan[vertex]] == label[vertex]) {
+                return;
+            }
+        }
+        labelCount[label[vertex]]--;
+        label[vertex]++;
+        labelCount[label[vertex]]++;
+        currentArc[vertex] = graph.getFirstArc(vertex);
+        if (SolverMetrics.ENABLED) {
+            metrics.relabels++;
+        }
+    }
+
+    /**
+     * Hang the tree of the strong vertex below the head of the merger arc, turning the path
+     * from the vertex to its old root around.
+     */
+    private void merge(int strong, int arc) {
+        int newParent = graph.getHead(arc);
+        int newArc = arc;
+        for (int vertex = strong; vertex >= 0; ) {
+            int oldParent = parent[vertex];
+            int oldArc = parentArc[vertex];
+            if (oldParent >= 0) {
+                removeChild(vertex);
+            }
+            addChild(newParent, vertex, newArc);
+            newParent = vertex;
+            newArc = oldParent >= 0 ? graph.getReverse(oldArc) : -1;
+            vertex = oldParent;
+        }
+    }
+
+    /**
+     * Push the excess of the old strong root up to the root of its new tree. An arc too
+     * small for the excess is saturated and cut, and the vertex below it becomes a strong root.
+     */
+    private void pushExcess(int vertex) {
+        double before = 1;
+        while (excess[vertex] > 0 && parent[vertex] >= 0) {
+            int up = parent[vertex];
+            int arc = parentArc[vertex];
+            double residual = graph.getResidualCapacity(arc);
+            before = excess[up];
+            if (SolverMetrics.ENABLED) {
+                metrics.pushes++;
+                if (residual <= excess[vertex]) {
+                    metrics.saturatingPushes++;
+                }
+            }
+            if (residual >= excess[vertex]) {
+                graph.increaseFlow(arc, excess[vertex]);
+                excess[up] += excess[vertex];
+                excess[vertex] = 0;
+            } else {
+                graph.increaseFlow(arc, residual);
+                excess[up] += residual;
+                excess[vertex] -= residual;
+                removeChild(vertex);
+                addRoot(vertex);
+            }
+            vertex = up;
+        }
+        if (excess[vertex] > 0 && before <= 0) {
+            addRoot(vertex);
+        }
+    }
+
+    /**
+     * Lift every vertex of the tree to label n.
+     */
+    private void liftTree(int root) {
+        if (SolverMetrics.ENABLED) {
+            metrics.gaps++;
+        }
+        int vertex = root;
+        while (true) {
+            labelCount[label[vertex]]--;
+            label[vertex] = n;
+            labelCount[n]++;
+            if (firstChild[vertex] >= 0) {
+                vertex = firstChild[vertex];
+                continue;
+            }
+            while (vertex != root && nextSibling[vertex] < 0) {
+                vertex = parent[vertex];
+            }
+            if (vertex == root) {
+                return;
+            }
+            vertex = nextSibling[vertex];
+        }
+    }
+
+    private int rootOf(int vertex) {
+        while (parent[vertex] >= 0) {
+            vertex = parent[vertex];
+        }
+        return vertex;
+    }
+
+    private void addRoot(int vertex) {
+        if (label[vertex] == 0) {
+            // a vertex split off a weak tree, nothing is below it so it can be relabeled at once
+            labelCount[0]--;
+            label[vertex] = 1;
+            labelCount[1]++;
+        }
+        int h = label[vertex];
+        if (h >= n) {
+            return;
+        }
+        rootNext[vertex] = rootFirst[h];
+        rootFirst[h] = vertex;
+        lowestRoot = Math.min(lowestRoot, h);
+        highestRoot = Math.max(highestRoot, h);
+    }
+
+    private void addChild(int up, int vertex, int arc) {
+        parent[vertex] = up;
+        parentArc[vertex] = arc;
+        prevSibling[vertex] = -1;
+        nextSibling[vertex] = firstChild[up];
+        if (firstChild[up] >= 0) {
+            prevSibling[firstChild[up]] = vertex;
+        }
+        firstChild[up] = vertex;
+    }
+
+    private void removeChild(int vertex) {
+        int up = parent[vertex];
+        if (prevSibling[vertex] >= 0) {
+            nextSibling[prevSibling[vertex]] = nextSibling[vertex];
+        } else {
+            firstChild[up] = nextSibling[vertex];
+        }
+        if (nextSibling[vertex] >= 0) {
+            prevSibling[nextSibling[vertex]] = prevSibling[vertex];
+        }
+        if (nextScan[up] == vertex) {
+            nextScan[up] = nextSibling[vertex];
+        }
+        parent[vertex] = -1;
+    }
+
+    /**
+     * Remove every deficit by taking flow back along flow-carrying paths that end in the sink
+     * or in a vertex with excess. Cycles of flow met on the way are cancelled. A vertex from
+     * which no such path is left is marked dead, flow is only ever removed so it stays dead.
+     */
+    private void cancelDeficits() {
+        if (dead == null || dead.length < n) {
+            stack = new int[n + 1];
+            pathArc = new int[n + 1];
+            position = new int[n];
+            dead = new boolean[n];
+        }
+        for (int v = 0; v < n; v++) {
+            position[v] = -1;
+            dead[v] = false;
+            currentArc[v] = graph.getFirstArc(v);
+        }
+
+        for (int v = 0; v < n; v++) {
+            if (v == source || v == sink) {
+                continue;
+            }
+            int depth = 0;
+            stack[0] = v;
+            position[v] = 0;
+            while (excess[v] < 0 && depth >= 0) {
+                int vertex = stack[depth];
+                if (depth > 0 && (vertex == sink || excess[vertex] > 0)) {
+                    double amount = -excess[v];
+                    if (vertex != sink) {
+                        amount = Math.min(amount, excess[vertex]);
+                    }
+                    for (int i = 1; i <= depth; i++) {
+                        amount = Math.min(amount, graph.getFlow(pathArc[i]));
+                    }
+                    for (int i = 1; i <= depth; i++) {
+                        graph.increaseFlow(graph.getReverse(pathArc[i]), amount);
+                    }
+                    excess[v] += amount;
+                    excess[vertex] -= amount;
+                    for (int i = 1; i <= depth; i++) {
+                        position[stack[i]] = -1;
+                    }
+                    depth = 0;
+                    continue;
+                }
+
+                int last = graph.getLastArc(vertex);
+                int arc = currentArc[vertex];
+                while (arc < last && (graph.getFlow(arc) <= 0 || dead[graph.getHead(arc)])) {
+                    arc++;
+                }
+                currentArc[vertex] = arc;
+                if (arc == last) {
+                    dead[vertex] = true;
+                    position[vertex] = -1;
+                    depth--;
+                    continue;
+                }
+
+                int head = graph.getHead(arc);
+                if (position[head] >= 0) {
+                    // a cycle of flow: cancel it and back up to where it starts
+                    double amount = graph.getFlow(arc);
+                    for (int i = position[head] + 1; i <= depth; i++) {
+                        amount = Math.min(amount, graph.getFlow(pathArc[i]));
+                    }
+                    graph.increaseFlow(graph.getReverse(arc), amount);
+                    for (int i = position[head] + 1; i <= depth; i++) {
+                        graph.increaseFlow(graph.getReverse(pathArc[i]), amount);
+                        position[stack[i]] = -1;
+                    }
+                    depth = position[head];
+                    continue;
+                }
+                pathArc[++depth] = arc;
+                stack[depth] = head;
+                position[head] = depth;
+            }
+            for (int i = 0; i <= depth; i++) {
+                position[stack[i]] = -1;
+            }
+        }
+    }
+}
@@ -3,62 +3,162 @@ package maxflow;
 import flowgraph.*;
 import simplegraph.SimpleGraph;
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.BitSet;
 
-public class ScalingFordFulkerson {
+public class ScalingFordFulkerson implements MaxFlowSolver {
     private double minResidualCapacity;
     protected static double INF = Double.MAX_VALUE/2;
 
+    // a vertex is visited in the current search if visited[v] == epoch
+    private int[] visited;
+    private int epoch;
+
+    // the search path: vertices on the explicit stack, the arc into each of them, and the next arc to try
+    private int[] stack;
+    private int[] pathArc;
+    private int[] nextArc;
+
+    private final SolverMetrics metrics = new SolverMetrics();
+
     public double findMaxFlow(SimpleGraph simpleGraph) throws Exception {
-        NetworkGraph graph = new NetworkGraph(simpleGraph);
-        NetworkVertex source = graph.getSource();
+        return findMaxFlow(new ResidualGraph(simpleGraph));
+    }
+
+    public double findMaxFlow(ResidualGraph graph) throws Exception {
+        MaxFlowSolvers.requireSingleTerminals(graph, "ScalingFordFulkerson");
+        allocate(graph.getVerticesNum());
+        if (SolverMetrics.ENABLED) {
+            metrics.reset();
+        }
+
+        int source = graph.getSource();
+        if (source < 0) {
+            return metrics.finish("ScalingFordFulkerson", graph.getGraphFlow());
+        }
         //Outgoing Capacity from Source
-        double sourceOutgoingCapacity = source.getOutgoingCapacity();
+        double sourceOutgoingCapacity = graph.getOutgoingCapacity(source);
         // Get starting min residual capacity
         minResidualCapacity = 1;
         while (minResidualCapacity * 2 < sourceOutgoingCapacity) {
             minResidualCapacity *= 2;
         }
         for(double f = 0; minResidualCapacity > 0; minResidualCapacity/=2){
+            if (SolverMetrics.ENABLED) {
+                metrics.phases++;
+            }
             do{
-                graph.setNotVisited();
-                f = dfs(graph, graph.getSource(), INF);
+                f = dfs(graph, source);
             } while(f != 0);
         }
 
-        return graph.getGraphFlow();
+        return metrics.finish("ScalingFordFulkerson", graph.getGraphFlow());
+    }
+
+    /**
+     * Solve, and take the minimum cut from the last search. The scaling threshold has halved
+     * down to the smallest positive double by then, so the search followed every residual arc
+     * and visited exactly the vertices reachable from the source.
+     */
+    public MaxFlowResult solve(ResidualGraph graph) throws Exception {
+        double flow = findMaxFlow(graph);
+        BitSet side = new BitSet(graph.getVerticesNum());
+        for (int v = 0; v < graph.getVerticesNum(); v++) {
+            if (graph.getSource() >= 0 && visited[v] == epoch) {
+                side.set(v);
+            }
+        }
+        return MaxFlowResult.of(graph, flow, side);
+    }
+
+    /**
+     * @return Work done by the last solve, all zero unless SolverMetrics.ENABLED.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Grow the arrays to n vertices. Arrays that are large enough are kept, and so is the
+     * epoch, which keeps counting up so the old marks in visited stay stale.
+     */
+    private void allocate(int n) {
+        if (visited == null || visited.length < n) {
+            visited = new int[n];
+            epoch = 0;
+            stack = new int[n + 1];
+            pathArc = new int[n + 1];
+            nextArc = new int[n];
+        }
     }
 
     /**
-     * This Linked List is used to find the s-t path to the sink with the Minimum Residual capacity
+     * Depth first search for an s-t path whose arcs all have at least the minimum residual capacity,
+     * augmenting along the first one found. The path is kept on an explicit stack so its length is
+     * not limited by the thread stack.
      * @param graph graph graph in which we find the max flow
      * @param origin origin starting nodes of the s-t flow
-     * @param flow: the current augmenting path's flow
-     * @return FlowEdge: s-t path with the max Flow, minimum residual capacity.
+     * @return double: bottleneck of the s-t path found, 0 if there is none.
      */
+    private double dfs(ResidualGraph graph, int origin) throws Exception {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            epoch = 1;
+        }
+
+        int sink = graph.getSink();
+        int depth = 0;
+        stack[0] = origin;
+        visited[origin] = epoch;
+        nextArc[origin] = graph.getFirstArc(origin);
 
-    //We take the graph, source node and the minimum residual capacity value as the input for this method.
-    private double dfs(
-            NetworkGraph graph,
-            NetworkVertex origin,
-            double flow) throws Exception {
-
-        if(origin.getName().equals("t"))
-            return flow;
-
-        // Mark origin as visited
-        origin.setVisited();
-
-        for (NetworkEdge edge : origin.getEdges()) {
-            if (edge.getResidualCapacity() >= minResidualCapacity && !edge.getSecondEndpoint().isVisited()) {
-                double bottleneck = dfs(graph, edge.getSecondEndpoint(), Math.min(flow, edge.getResidualCapacity()));
-                if(bottleneck > 0){
-                    edge.increaseFlow(bottleneck);
-                    return bottleneck;
-                }
+        while (depth >= 0) {
+            int vertex = stack[depth];
+            if (vertex == sink) {
+                return augment(graph, depth);
+            }
+
+            int arc = nextArc[vertex];
+            int last = graph.getLastArc(vertex);
+            while (arc < last && (graph.getResidualCapacity(arc) < minResidualCapacity || visited[graph.getHead(arc)] == epoch)) {
+                arc++;
+            }
+            if (SolverMetrics.ENABLED) {
+                metrics.arcsScanned += Math.min(arc + 1, last) - nextArc[vertex];
+            }
+
+            if (arc < last) {
+                nextArc[vertex] = arc + 1;
+                int head = graph.getHead(arc);
+                visited[head] = epoch;
+                nextArc[head] = graph.getFirstArc(head);
+                pathArc[++depth] = arc;
+                stack[depth] = head;
+            } else {
+                // No path found through this vertex
+                depth--;
             }
         }
         // No path found
         return 0;
     }
+
+    /**
+     * Push the bottleneck capacity along the arcs of the search path.
+     * @return the bottleneck
+     */
+    private double augment(ResidualGraph graph, int depth) {
+        if (SolverMetrics.ENABLED) {
+            metrics.augmentations++;
+            metrics.augmentingPathArcs += depth;
+        }
+        double bottleneck = INF;
+        for (int i = 1; i <= depth; i++) {
+            bottleneck = Math.min(bottleneck, graph.getResidualCapacity(pathArc[i]));
+        }
+        for (int i = 1; i <= depth; i++) {
+            graph.increaseFlow(pathArc[i], bottleneck);
+        }
+        return bottleneck;
+    }
 }
@@ -0,0 +1,169 @@
+package maxflow;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Work done by a solve: augmentations and the arcs on their paths, arcs scanned, pushes,
+ * relabels, global relabels, gaps and phases (scaling phases, or BFS phases for the
+ * phase-based algorithms). Every solver returns the counters of its last solve from
+ * getMetrics, one instance that is reset by each solve, and adds them to running totals that are registered as the MXBean
+ * maxflow:type=SolverMetrics,name=&lt;solver&gt;.
+ *
+ * Counting is off unless the JVM runs with -Dmaxflow.metrics=true. The solvers guard every
+ * increment with ENABLED, a static final constant, so with counting off the JIT removes the
+ * increments and the counters stay zero.
+ */
+public class SolverMetrics implements SolverMetricsMXBean {
+    public static final boolean ENABLED = Boolean.getBoolean("maxflow.metrics");
+
+    private static final ConcurrentHashMap<String, SolverMetrics> TOTALS = new ConcurrentHashMap<>();
+
+    long solves;
+    long augmentations;
+    long augmentingPathArcs;
+    long arcsScanned;
+    long pushes;
+    long saturatingPushes;
+    long relabels;
+    long globalRelabels;
+    long gaps;
+    long phases;
+
+    /**
+     * @param solver Name of the solver.
+     * @return The totals over all solves of the solver in this JVM, or null if it has not run
+     *         with counting on.
+     */
+    public static SolverMetrics getTotals(String solver) {
+        return TOTALS.get(solver);
+    }
+
+    /**
+     * End a solve: add its counts to the totals of the solver.
+     * @return The flow, passed through.
+     */
+    double finish(String solver, double flow) {
+        if (ENABLED) {
+            this.solves = 1;
+            SolverMetrics totals = TOTALS.computeIfAbsent(solver, SolverMetrics::register);
+            totals.add(this);
+        }
+        return flow;
+    }
+
+    long finish(String solver, long flow) {
+        this.finish(solver, (double) flow);
+        return flow;
+    }
+
+    private static SolverMetrics register(String solver) {
+        SolverMetrics totals = new SolverMetrics();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(totals,
+                    new ObjectName("maxflow:type=SolverMetrics,name=" + ObjectName.quote(solver)));
+        } catch (JMException e) {
+            // the totals are still kept and available from getTotals
+        }
+        return totals;
+    }
+
+    /**
+     * Zero the counts at the start of a solve, so a solver keeps one instance for all its solves.
+     * The counts of the previous solve are gone, copy them first to keep them.
+     */
+    synchronized void reset() {
+        this.solves = 0;
+        this.augmentations = 0;
+        this.augmentingPathArcs = 0;
+        this.arcsScanned = 0;
+        this.pushes = 0;
+        this.saturatingPushes = 0;
+        this.relabels = 0;
+        this.globalRelabels = 0;
+        this.gaps = 0;
+        this.phases = 0;
+    }
+
+    /**
+     * Add the counts of another solve, or of work done by a helper solver.
+     */
+    synchronized void add(SolverMetrics other) {
+        this.solves += other.solves;
+        this.augmentations += other.augmentations;
+        this.augmentingPathArcs += other.augmentingPathArcs;
+        this.arcsScanned += other.arcsScanned;
+        this.pushes += other.pushes;
+        this.saturatingPushes += other.saturatingPushes;
+        this.relabels += other.relabels;
+        this.globalRelabels += other.globalRelabels;
+        this.gaps += other.gaps;
+        this.phases += other.phases;
+    }
+
+    @Override
+    public synchronized long getSolves() {
+        return this.solves;
+    }
+
+    @Override
+    public synchronized long getAugmentations() {
+        return this.augmentations;
+    }
+
+    @Override
+    public synchronized long getAugmentingPathArcs() {
+        return this.augmentingPathArcs;
+    }
+
+    @Override
+    public synchronized double getAverageAugmentingPathLength() {
+        return this.augmentations == 0 ? 0 : (double) this.augmentingPathArcs / this.augmentations;
+    }
+
+    @Override
+    public synchronized long getArcsScanned() {
+        return this.arcsScanned;
+    }
+
+    @Override
+    public synchronized long getPushes() {
+        return this.pushes;
+    }
+
+    @Override
+    public synchronized long getSaturatingPushes() {
+        return this.saturatingPushes;
+    }
+
+    @Override
+    public synchronized long getRelabels() {
+        return this.relabels;
+    }
+
+    @Override
+    public synchronized long getGlobalRelabels() {
+        return this.globalRelabels;
+    }
+
+    @Override
+    public synchronized long getGaps() {
+        return this.gaps;
+    }
+
+    @Override
+    public synchronized long getPhases() {
+        return this.phases;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "augmentations=" + this.augmentations + " augmentingPathArcs=" + this.augmentingPathArcs
+                + " arcsScanned=" + this.arcsScanned + " pushes=" + this.pushes
+                + " saturatingPushes=" + this.saturatingPushes + " relabels=" + this.relabels
+                + " globalRelabels=" + this.globalRelabels + " gaps=" + this.gaps + " phases=" + this.phases;
+    }
+}
@@ -0,0 +1,28 @@
+package maxflow;
+
+/**
+ * Work counters of a solver, as seen through JMX.
+ */
+public interface SolverMetricsMXBean {
+    long getSolves();
+
+    long getAugmentations();
+
+    long getAugmentingPathArcs();
+
+    double getAverageAugmentingPathLength();
+
+    long getArcsScanned();
+
+    long getPushes();
+
+    long getSaturatingPushes();
+
+    long getRelabels();
+
+    long getGlobalRelabels();
+
+    long getGaps();
+
+    long getPhases();
+}
@@ -25,6 +25,7 @@ public class Edge {
     
     private Object data;  // an object associated with this edge
     private Object name;  // a name associated with this edge
+    private Long cost;    // cost per unit of flow, null if none was given
     
     /**
      * Constructor that allows data and a name to be associated
@@ -80,5 +81,21 @@ public class Edge {
     public Object getName() {
         return this.name;
     }
+
+    /**
+     * Return the cost per unit of flow on this edge.
+     * @return  the cost of this edge, or null if it has none
+     */
+    public Long getCost() {
+        return this.cost;
+    }
+
+    /**
+     * Set the cost per unit of flow on this edge.
+     * @param cost  the cost of this edge, or null for none
+     */
+    public void setCost(Long cost) {
+        this.cost = cost;
+    }
     
 }
@@ -35,6 +35,8 @@ public class GraphInput {
      * The format of the file is:
      * Each line of the file contains 3 tokens, where the first two are strings
      * representing vertex labels and the third is an edge weight (a double).
+     * An optional fourth token is the cost of the edge (an integer), which is
+     * kept as the cost of the edge.
      * Each line represents one edge.
      * 
      * This method returns a hashtable of (String, Vertex) pairs.
@@ -56,14 +58,18 @@ public class GraphInput {
             linenum++;
             sTok = new StringTokenizer(line);
             n = sTok.countTokens();
-            if (n==3) {
+            if (n==3 || n==4) {
                 Double edgedata;
+                Long edgecost = null;
                 Vertex v1, v2;
                 String v1name, v2name;
 
                 v1name = sTok.nextToken();
                 v2name = sTok.nextToken();
                 edgedata = new Double(Double.parseDouble(sTok.nextToken()));
+                if (n==4) {
+                    edgecost = Long.valueOf(Long.parseLong(sTok.nextToken()));
+                }
                 v1 = (Vertex) table.get(v1name);
                 if (v1 == null) {
 //                      System.out.println("New vertex " + v1name);
@@ -77,7 +83,8 @@ public class GraphInput {
                     table.put(v2name, v2);
                 }
 //              System.out.println("Inserting edge (" + v1name + "," + v2name + ")" + edgedata);
-                sg.insertEdge(v1,v2,edgedata, null);
+                Edge e = sg.insertEdge(v1,v2,edgedata, null);
+                e.setCost(edgecost);
             }
             else {
                 System.err.println("Error:invalid number of tokens found on line " +linenum+ "!");
@@ -1,36 +1,443 @@
-import maxflow.FordFulkerson;
-import maxflow.PreflowPush;
-import maxflow.ScalingFordFulkerson;
-import simplegraph.SimpleGraph;
-import simplegraph.GraphInput;
+import flowgraph.CapacityType;
+import flowgraph.EdgeList;
+import flowgraph.EdgeListReader;
+import flowgraph.IntegralResidualGraph;
+import flowgraph.OffHeapResidualGraph;
+import flowgraph.ResidualGraph;
+import maxflow.Dinic;
+import maxflow.MaxFlowSolver;
+import maxflow.MaxFlowSolvers;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Batch driver: runs max flow algorithms over graph files and reports the load and build time
+ * of each file and the solve time of each algorithm on it, timed with System.nanoTime over
+ * repeated runs after a warmup. The residual graph of a file is built once and reset between
+ * solves, and each algorithm keeps one solver instance, so its arrays are reused across runs
+ * and files.
+ *
+ * Usage: java tcss543 [options] file|directory|glob...
+ *   -a name,name  algorithms to run (default: all), see MaxFlowSolvers
+ *   -w n          warmup runs per phase, not recorded (default 0)
+ *   -r n          recorded runs per phase (default 1)
+ *   -f format     text, csv or json (default text)
+ *   -o file       write the report to a file instead of stdout
+ *   -s name,name  source vertices (default s)
+ *   -t name,name  sink vertices (default t), several sources or sinks are solved as one
+ *                 virtual source and sink by the algorithms that support it, the others
+ *                 are skipped
+ *   -m storage    heap or offheap residual graphs (default heap), offheap runs every
+ *                 algorithm, Dinic included, on an OffHeapResidualGraph
+ *
+ * Every algorithm must find the same flow value on a file; otherwise the mismatch is reported
+ * and the exit status is 1, as it is when a file cannot be read.
+ */
 public class tcss543 {
+    // report labels of the registered solvers, others are labeled by their name
+    private static final Map<String, String> LABELS = new HashMap<>();
+
+    static {
+        LABELS.put("FordFulkerson", "Ford-Fulkerson");
+        LABELS.put("ScalingFordFulkerson", "Scalling-Ford-Fulkerson");
+        LABELS.put("PreflowPush", "Pre Flow Push");
+        LABELS.put("HighestLabelPreflowPush", "Highest Label Pre Flow Push");
+        LABELS.put("EdmondsKarp", "Edmonds-Karp");
+        LABELS.put("ParallelPreflowPush", "Parallel Pre Flow Push");
+        LABELS.put("BoykovKolmogorov", "Boykov-Kolmogorov");
+        LABELS.put("PseudoflowHighest", "Pseudoflow Highest Label");
+        LABELS.put("PseudoflowLowest", "Pseudoflow Lowest Label");
+    }
+
+    /**
+     * A selected solver, kept for the whole batch so it reuses its arrays, and closed at the end
+     * if it holds threads or memory.
+     */
+    private static class Algorithm {
+        final String name;
+        final String label;
+        final MaxFlowSolver solver;
+
+        Algorithm(String name) {
+            this.name = name;
+            this.label = LABELS.getOrDefault(name, name);
+            this.solver = MaxFlowSolvers.create(name);
+        }
+    }
+
+    /**
+     * Percentiles of one phase, in nanoseconds.
+     */
+    private static class Timing {
+        final int runs;
+        final long p50;
+        final long p95;
+        final long max;
+
+        Timing(long[] times) {
+            long[] sorted = times.clone();
+            Arrays.sort(sorted);
+            this.runs = sorted.length;
+            this.p50 = percentile(sorted, 50);
+            this.p95 = percentile(sorted, 95);
+            this.max = sorted[sorted.length - 1];
+        }
+
+        // nearest rank
+        private static long percentile(long[] sorted, int p) {
+            int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+
+    /**
+     * One line of the report: the load phase of a file, or the build or solve phase of an
+     * algorithm on it.
+     */
+    private static class Row {
+        final String file;
+        final String algorithm;
+        final String phase;
+        final Timing timing;
+        final double flow;
+
+        Row(String file, String algorithm, String phase, Timing timing, double flow) {
+            this.file = file;
+            this.algorithm = algorithm;
+            this.phase = phase;
+            this.timing = timing;
+            this.flow = flow;
+        }
+    }
+
+    private List<Algorithm> algorithms = selectAlgorithms(String.join(",", MaxFlowSolvers.names()));
+    private int warmup = 0;
+    private int repetitions = 1;
+    private String format = "text";
+    private String sourceName;
+    private String sinkName;
+    private boolean offHeap;
+    private List<Row> rows = new ArrayList<>();
+    private boolean mismatch;
+    private boolean failed;
+
     public static void main(String[] args) throws Exception {
-        String graphPath = args[0]; // the first argument is the path of the graph text file
-
-        SimpleGraph simpleGraph = new SimpleGraph();
-        GraphInput.LoadSimpleGraph(simpleGraph, graphPath);
-
-        System.out.println("Start to execute algorithms.");
-        FordFulkerson FF = new FordFulkerson();
-        long beginTime1 = System.currentTimeMillis();
-        double result1 = FF.findMaxFlow(simpleGraph);
-        long endTime1 = System.currentTimeMillis();
-        long time1 = endTime1 - beginTime1;
-        System.out.println("Ford-Fulkerson" +  " Max flow: " + result1 + " in " + time1 + " ms");
-
-        ScalingFordFulkerson SFF = new ScalingFordFulkerson();
-        long beginTime2 = System.currentTimeMillis();
-        double result2 = SFF.findMaxFlow(simpleGraph);
-        long endTime2 = System.currentTimeMillis();
-        long time2 = endTime2 - beginTime2;
-        System.out.println("Scalling-Ford-Fulkerson" +  " Max flow: " + result2 + " in " + time2 + " ms");
-
-        PreflowPush PFP = new PreflowPush();
-        long beginTime3 = System.currentTimeMillis();
-        double result3 = PFP.findMaxFlow(simpleGraph);
-        long endTime3 = System.currentTimeMillis();
-        long time3 = endTime3 - beginTime3;
-        System.out.println("Pre Flow Push" +  " Max flow: " + result3 + " in " + time3 + " ms");
+        tcss543 driver = new tcss543();
+        List<String> inputs = new ArrayList<>();
+        String output = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-a":
+                    driver.algorithms = selectAlgorithms(args[++i]);
+                    break;
+                case "-w":
+                    driver.warmup = Math.max(0, Integer.parseInt(args[++i]));
+                    break;
+                case "-r":
+                    driver.repetitions = Math.max(1, Integer.parseInt(args[++i]));
+                    break;
+                case "-f":
+                    driver.format = args[++i];
+                    break;
+                case "-o":
+                    output = args[++i];
+                    break;
+                case "-s":
+                    driver.sourceName = args[++i];
+                    break;
+                case "-t":
+                    driver.sinkName = args[++i];
+                    break;
+                case "-m":
+                    String storage = args[++i];
+                    if (!storage.equals("heap") && !storage.equals("offheap")) {
+                        throw new IllegalArgumentException("Unknown storage " + storage + ", expected heap or offheap");
+                    }
+                    driver.offHeap = storage.equals("offheap");
+                    break;
+                default:
+                    inputs.add(args[i]);
+                    break;
+            }
+        }
+        if (!Arrays.asList("text", "csv", "json").contains(driver.format)) {
+            throw new IllegalArgumentException("Unknown format " + driver.format + ", expected text, csv or json");
+        }
+        List<Path> files = resolve(inputs);
+        if (files.isEmpty()) {
+            System.err.println("Usage: java tcss543 [-a algorithms] [-w warmup] [-r repetitions] "
+                    + "[-f text|csv|json] [-o file] [-s sources] [-t sinks] [-m heap|offheap] file|directory|glob...");
+            System.exit(2);
+        }
+
+        try (PrintStream out = output == null ? System.out : new PrintStream(new FileOutputStream(output))) {
+            if (driver.format.equals("csv")) {
+                out.println("file,algorithm,phase,runs,p50_ms,p95_ms,max_ms,flow");
+            }
+            for (Path file : files) {
+                try {
+                    driver.run(file.toString(), out);
+                } catch (IOException e) {
+                    // one unreadable file should not end a batch
+                    driver.failed = true;
+                    System.err.println("Skipped " + file + ": " + e.getMessage());
+                }
+            }
+            if (driver.format.equals("json")) {
+                driver.printJson(out);
+            }
+        } finally {
+            for (Algorithm algorithm : driver.algorithms) {
+                if (algorithm.solver instanceof AutoCloseable) {
+                    ((AutoCloseable) algorithm.solver).close();
+                }
+            }
+        }
+        if (driver.mismatch || driver.failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Load and build the file, then solve it with every algorithm, and check the flows agree.
+     */
+    private void run(String file, PrintStream out) throws Exception {
+        EdgeList edges = null;
+        long[] loadTimes = new long[this.repetitions];
+        for (int run = -this.warmup; run < this.repetitions; run++) {
+            long begin = System.nanoTime();
+            edges = EdgeListReader.read(file);
+            long time = System.nanoTime() - begin;
+            if (run >= 0) {
+                loadTimes[run] = time;
+            }
+        }
+        Row load = this.add(new Row(file, "", "load", new Timing(loadTimes), Double.NaN));
+
+        // one graph for all algorithms, and an integral one for Dinic when the capacities allow it
+        boolean integral = !this.offHeap && CapacityType.of(edges) != CapacityType.DOUBLE
+                && this.algorithms.stream().anyMatch(algorithm -> algorithm.solver instanceof Dinic);
+        ResidualGraph graph = null;
+        IntegralResidualGraph integralGraph = null;
+        long[] buildTimes = new long[this.repetitions];
+        for (int run = -this.warmup; run < this.repetitions; run++) {
+            close(graph);
+            long begin = System.nanoTime();
+            graph = this.offHeap ? new OffHeapResidualGraph(edges) : new ResidualGraph(edges);
+            integralGraph = integral ? IntegralResidualGraph.create(edges) : null;
+            long time = System.nanoTime() - begin;
+            if (run >= 0) {
+                buildTimes[run] = time;
+            }
+        }
+        try {
+            this.solve(file, out, edges, load, graph, integralGraph, buildTimes);
+        } finally {
+            close(graph);
+        }
+    }
+
+    /**
+     * Solve the built graph with every algorithm, and check the flows agree.
+     */
+    private void solve(String file, PrintStream out, EdgeList edges, Row load, ResidualGraph graph,
+                       IntegralResidualGraph integralGraph, long[] buildTimes) throws Exception {
+        if (this.sourceName != null || this.sinkName != null) {
+            String[] sources = (this.sourceName == null ? "s" : this.sourceName).split(",");
+            String[] sinks = (this.sinkName == null ? "t" : this.sinkName).split(",");
+            graph.setTerminals(sources, sinks);
+            if (integralGraph != null) {
+                integralGraph.setTerminals(sources, sinks);
+            }
+        }
+        Row build = this.add(new Row(file, "", "build", new Timing(buildTimes), Double.NaN));
+        if (this.format.equals("text")) {
+            out.println("== " + file + ": " + edges.getVerticesNum() + " vertices, " + edges.getEdgesNum()
+                    + " edges, load " + text(load.timing) + ", build " + text(build.timing));
+        } else if (this.format.equals("csv")) {
+            printCsv(out, load);
+            printCsv(out, build);
+        }
+
+        Double expected = null;
+        for (Algorithm algorithm : this.algorithms) {
+            if (graph.hasMultipleTerminals() && !algorithm.solver.supportsMultipleTerminals()) {
+                if (this.format.equals("text")) {
+                    out.println(algorithm.label + " skipped, it needs a single source and sink");
+                }
+                continue;
+            }
+            long[] solveTimes = new long[this.repetitions];
+            double flow = Double.NaN;
+            boolean consistent = true;
+            for (int run = -this.warmup; run < this.repetitions; run++) {
+                double value;
+                long begin;
+                if (integralGraph != null && algorithm.solver instanceof Dinic) {
+                    // exact integral arithmetic
+                    integralGraph.reset();
+                    begin = System.nanoTime();
+                    value = ((Dinic) algorithm.solver).findMaxFlow(integralGraph);
+                } else {
+                    graph.reset();
+                    begin = System.nanoTime();
+                    value = algorithm.solver.findMaxFlow(graph);
+                }
+                long time = System.nanoTime() - begin;
+                if (run >= 0) {
+                    solveTimes[run] = time;
+                }
+                consistent &= Double.isNaN(flow) || agree(flow, value);
+                flow = value;
+            }
+
+            if (expected == null) {
+                expected = flow;
+            }
+            if (!consistent || !agree(expected, flow)) {
+                this.mismatch = true;
+                System.err.println("Flow mismatch on " + file + ": " + algorithm.name + " found " + flow
+                        + (consistent ? "" : " and different values across runs") + ", expected " + expected);
+            }
+
+            Row solve = this.add(new Row(file, algorithm.name, "solve", new Timing(solveTimes), flow));
+            if (this.format.equals("text")) {
+                out.println(algorithm.label + " Max flow: " + flow + " solve " + text(solve.timing));
+            } else if (this.format.equals("csv")) {
+                printCsv(out, solve);
+            }
+        }
+    }
+
+    private static void close(ResidualGraph graph) {
+        if (graph instanceof OffHeapResidualGraph) {
+            ((OffHeapResidualGraph) graph).close();
+        }
+    }
+
+    private Row add(Row row) {
+        this.rows.add(row);
+        return row;
+    }
+
+    private static boolean agree(double a, double b) {
+        return Math.abs(a - b) <= 1e-9 * Math.max(1, Math.max(Math.abs(a), Math.abs(b)));
+    }
+
+    private static String text(Timing timing) {
+        if (timing.runs == 1) {
+            return millis(timing.p50) + " ms";
+        }
+        return "p50 " + millis(timing.p50) + " p95 " + millis(timing.p95) + " max " + millis(timing.max) + " ms";
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static void printCsv(PrintStream out, Row row) {
+        out.println(csv(row.file) + "," + row.algorithm + "," + row.phase + "," + row.timing.runs + ","
+                + millis(row.timing.p50) + "," + millis(row.timing.p95) + "," + millis(row.timing.max) + ","
+                + (Double.isNaN(row.flow) ? "" : Double.toString(row.flow)));
+    }
+
+    private static String csv(String value) {
+        if (value.contains(",") || value.contains("\"")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private void printJson(PrintStream out) {
+        out.println("[");
+        for (int i = 0; i < this.rows.size(); i++) {
+            Row row = this.rows.get(i);
+            out.println("  {\"file\": " + json(row.file) + ", \"algorithm\": " + json(row.algorithm)
+                    + ", \"phase\": \"" + row.phase + "\", \"runs\": " + row.timing.runs
+                    + ", \"p50_ms\": " + millis(row.timing.p50) + ", \"p95_ms\": " + millis(row.timing.p95)
+                    + ", \"max_ms\": " + millis(row.timing.max)
+                    + ", \"flow\": " + (Double.isNaN(row.flow) ? "null" : Double.toString(row.flow))
+                    + (i + 1 < this.rows.size() ? "}," : "}"));
+        }
+        out.println("]");
+    }
+
+    private static String json(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static List<Algorithm> selectAlgorithms(String list) {
+        List<Algorithm> selected = new ArrayList<>();
+        for (String name : list.split(",")) {
+            String found = null;
+            for (String registered : MaxFlowSolvers.names()) {
+                if (registered.equalsIgnoreCase(name.trim())) {
+                    found = registered;
+                }
+            }
+            if (found == null) {
+                throw new IllegalArgumentException("Unknown algorithm " + name + ", expected one of "
+                        + String.join(", ", MaxFlowSolvers.names()));
+            }
+            selected.add(new Algorithm(found));
+        }
+        return selected;
+    }
+
+    /**
+     * Expand the inputs into graph files: files as given, the .txt files of a directory in
+     * name order, and the files matching a glob, searched below the directory part before its
+     * first wildcard.
+     */
+    private static List<Path> resolve(List<String> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String input : inputs) {
+            int wildcard = indexOfWildcard(input);
+            if (wildcard < 0) {
+                Path path = Paths.get(input);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> listing = Files.list(path)) {
+                        listing.filter(file -> Files.isRegularFile(file) && file.toString().endsWith(".txt"))
+                                .sorted().forEach(files::add);
+                    }
+                } else {
+                    files.add(path);
+                }
+                continue;
+            }
+            int slash = input.lastIndexOf('/', wildcard);
+            Path root = Paths.get(slash < 0 ? "" : input.substring(0, slash + 1));
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+            try (Stream<Path> walk = Files.walk(slash < 0 ? Paths.get(".") : root)) {
+                walk.map(file -> slash < 0 ? Paths.get(".").relativize(file) : file)
+                        .filter(file -> Files.isRegularFile(file) && matcher.matches(file))
+                        .sorted().forEach(files::add);
+            }
+        }
+        return files;
+    }
+
+    private static int indexOfWildcard(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
     }
 }
@@ -0,0 +1,116 @@
+package flowgraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import maxflow.Dinic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A written and mapped graph file must give back the graph it was written from, for every
+ * capacity type.
+ */
+class BinaryGraphFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripKeepsEveryCapacityType() throws Exception {
+        assertRoundTrip(random(1, 30, 20), CapacityType.INT);
+        assertRoundTrip(random(2, 30, 1L << 40), CapacityType.LONG);
+        assertRoundTrip(random(3, 30, 0), CapacityType.DOUBLE);
+    }
+
+    @Test
+    void capacityChangesAndReset() throws Exception {
+        Path file = this.directory.resolve("change.bin");
+        BinaryGraphFile.write(random(4, 20, 20), file.toString());
+        MappedResidualGraph graph = BinaryGraphFile.map(file.toString());
+        int arc = graph.getFirstArc(graph.getSource());
+        graph.increaseFlow(arc, graph.getResidualCapacity(arc));
+        // lowering the capacity below the flow takes the extra flow off
+        double flow = graph.getFlow(arc);
+        assertEquals(flow / 2, graph.setCapacity(arc, flow / 2));
+        assertEquals(flow / 2, graph.getFlow(arc));
+        assertEquals(flow / 2, graph.getCapacity(arc));
+        graph.reset();
+        assertEquals(0, graph.getFlow(arc));
+        assertEquals(flow / 2, graph.getResidualCapacity(arc));
+    }
+
+    @Test
+    void textFilesAreNotMapped() throws IOException {
+        Path file = this.directory.resolve("small.txt");
+        Files.write(file, "s a 4\na t 2.5\ns t 1\n".getBytes());
+        assertFalse(BinaryGraphFile.isBinary(file.toString()));
+        assertThrows(IOException.class, () -> BinaryGraphFile.map(file.toString()));
+        assertEquals(3, BinaryGraphFile.open(file.toString()).getVerticesNum());
+    }
+
+    private void assertRoundTrip(EdgeList edges, CapacityType type) throws Exception {
+        assertEquals(type, CapacityType.of(edges));
+        Path file = this.directory.resolve(type + ".bin");
+        BinaryGraphFile.write(edges, file.toString());
+        assertTrue(BinaryGraphFile.isBinary(file.toString()));
+
+        ResidualGraph heap = new ResidualGraph(edges);
+        MappedResidualGraph mapped = BinaryGraphFile.map(file.toString());
+        assertEquals(heap.getVerticesNum(), mapped.getVerticesNum());
+        assertEquals(heap.getArcsNum(), mapped.getArcsNum());
+        assertEquals(heap.getSource(), mapped.getSource());
+        assertEquals(heap.getSink(), mapped.getSink());
+        for (int v = 0; v < heap.getVerticesNum(); v++) {
+            assertEquals(heap.getVertexName(v), mapped.getVertexName(v));
+            assertEquals(v, mapped.getVertexId(heap.getVertexName(v)));
+            assertEquals(heap.getFirstArc(v), mapped.getFirstArc(v));
+            assertEquals(heap.getLastArc(v), mapped.getLastArc(v));
+            assertEquals(heap.getOutgoingCapacity(v), mapped.getOutgoingCapacity(v));
+        }
+        for (int arc = 0; arc < heap.getArcsNum(); arc++) {
+            assertEquals(heap.getHead(arc), mapped.getHead(arc));
+            assertEquals(heap.getTail(arc), mapped.getTail(arc));
+            assertEquals(heap.getReverse(arc), mapped.getReverse(arc));
+            assertEquals(heap.isBackward(arc), mapped.isBackward(arc));
+            assertEquals(heap.getCapacity(arc), mapped.getCapacity(arc));
+            assertEquals(heap.getResidualCapacity(arc), mapped.getResidualCapacity(arc));
+        }
+
+        double expected = new Dinic().findMaxFlow(heap);
+        assertEquals(expected, new Dinic().findMaxFlow(mapped), type.toString());
+        assertEquals(expected, mapped.getGraphFlow(), type.toString());
+        mapped.reset();
+        assertEquals(0, mapped.getGraphFlow(), type.toString());
+    }
+
+    /**
+     * A random network on s, t and n other vertices whose first arc out of s has capacity.
+     * Capacities are whole numbers up to scale, or sevenths when scale is zero.
+     */
+    private static EdgeList random(long seed, int n, long scale) {
+        Random random = new Random(seed);
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        builder.addEdge("s", "v0", scale == 0 ? 3 / 7.0 : scale);
+        for (int e = 0; e < 4 * n; e++) {
+            int tail = random.nextInt(n + 2);
+            int head = random.nextInt(n + 2);
+            if (tail != head) {
+                double capacity = scale == 0 ? random.nextInt(20) / 7.0 : (long) (random.nextDouble() * scale);
+                builder.addEdge(name(tail, n), name(head, n), capacity);
+            }
+        }
+        return builder.toEdgeList();
+    }
+
+    private static String name(int vertex, int n) {
+        return vertex == n ? "s" : vertex == n + 1 ? "t" : "v" + vertex;
+    }
+}
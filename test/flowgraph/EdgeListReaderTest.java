@@ -0,0 +1,85 @@
+package flowgraph;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The parallel loader must give exactly the edge list of the sequential one.
+ */
+class EdgeListReaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void smallFileMatchesHandCount() throws IOException {
+        Path file = this.directory.resolve("small.txt");
+        Files.write(file, "s a 4\na t 2.5\ns t 1\n".getBytes());
+        EdgeList edges = EdgeListReader.read(file.toString());
+        assertEquals(3, edges.getVerticesNum());
+        assertEquals(3, edges.getEdgesNum());
+        assertEquals("s", edges.getName(0));
+        assertEquals("a", edges.getName(1));
+        assertEquals("t", edges.getName(2));
+        assertEquals(2.5, edges.getCapacity(1));
+        assertEquals(false, edges.hasCosts());
+        assertEdgeListsEqual(edges, EdgeListReader.readParallel(file.toString()));
+    }
+
+    @Test
+    void parallelMatchesSequentialOnSeveralChunks() throws IOException {
+        // about 13 MB, so the file is cut into several chunks of at least 4 MB; names keep
+        // appearing for the first time in every chunk, and a few lines carry a cost
+        Path file = this.directory.resolve("large.txt");
+        Random random = new Random(13);
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (int line = 0; line < 1_100_000; line++) {
+                int range = 1000 + line / 10;
+                out.write("v" + random.nextInt(range) + " v" + random.nextInt(range) + " " + (1 + random.nextInt(100)));
+                if (line % 1000 == 0) {
+                    out.write(" " + (random.nextInt(21) - 10));
+                }
+                out.newLine();
+            }
+        }
+        EdgeList sequential = EdgeListReader.read(file.toString());
+        assertEquals(1_100_000, sequential.getEdgesNum());
+        assertEdgeListsEqual(sequential, EdgeListReader.readParallel(file.toString()));
+    }
+
+    @Test
+    void malformedLineIsRejected() throws IOException {
+        Path file = this.directory.resolve("bad.txt");
+        Files.write(file, "s a 4\na t\n".getBytes());
+        assertThrows(IOException.class, () -> EdgeListReader.read(file.toString()));
+        assertThrows(IOException.class, () -> EdgeListReader.readParallel(file.toString()));
+    }
+
+    static void assertEdgeListsEqual(EdgeList expected, EdgeList actual) {
+        assertEquals(expected.getVerticesNum(), actual.getVerticesNum());
+        assertEquals(expected.getEdgesNum(), actual.getEdgesNum());
+        assertEquals(expected.hasCosts(), actual.hasCosts());
+        String[] expectedNames = new String[expected.getVerticesNum()];
+        String[] actualNames = new String[actual.getVerticesNum()];
+        for (int v = 0; v < expectedNames.length; v++) {
+            expectedNames[v] = expected.getName(v);
+            actualNames[v] = actual.getName(v);
+        }
+        assertArrayEquals(expectedNames, actualNames);
+        for (int e = 0; e < expected.getEdgesNum(); e++) {
+            assertEquals(expected.getFrom(e), actual.getFrom(e), "tail of edge " + e);
+            assertEquals(expected.getTo(e), actual.getTo(e), "head of edge " + e);
+            assertEquals(expected.getCapacity(e), actual.getCapacity(e), "capacity of edge " + e);
+            assertEquals(expected.getCost(e), actual.getCost(e), "cost of edge " + e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package flowgraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import maxflow.MaxFlowSolver;
+import maxflow.MaxFlowSolvers;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The off-heap graph must lay out the same arcs as the heap graph and solve to the same flow.
+ */
+class OffHeapResidualGraphTest {
+    @Test
+    void sameLayoutAsHeapGraph() {
+        EdgeList edges = random(1, 40);
+        ResidualGraph heap = new ResidualGraph(edges);
+        try (OffHeapResidualGraph offHeap = new OffHeapResidualGraph(edges)) {
+            assertEquals(heap.getVerticesNum(), offHeap.getVerticesNum());
+            assertEquals(heap.getArcsNum(), offHeap.getArcsNum());
+            assertEquals(heap.getSource(), offHeap.getSource());
+            assertEquals(heap.getSink(), offHeap.getSink());
+            for (int v = 0; v < heap.getVerticesNum(); v++) {
+                assertEquals(heap.getVertexName(v), offHeap.getVertexName(v));
+                assertEquals(v, offHeap.getVertexId(heap.getVertexName(v)));
+                assertEquals(heap.getFirstArc(v), offHeap.getFirstArc(v));
+                assertEquals(heap.getLastArc(v), offHeap.getLastArc(v));
+                assertEquals(heap.getOutgoingCapacity(v), offHeap.getOutgoingCapacity(v));
+            }
+            for (int arc = 0; arc < heap.getArcsNum(); arc++) {
+                assertEquals(heap.getHead(arc), offHeap.getHead(arc));
+                assertEquals(heap.getTail(arc), offHeap.getTail(arc));
+                assertEquals(heap.getReverse(arc), offHeap.getReverse(arc));
+                assertEquals(heap.isBackward(arc), offHeap.isBackward(arc));
+                assertEquals(heap.getCapacity(arc), offHeap.getCapacity(arc));
+                assertEquals(heap.getResidualCapacity(arc), offHeap.getResidualCapacity(arc));
+            }
+        }
+    }
+
+    @Test
+    void everyEngineSolvesToTheSameFlow() throws Exception {
+        for (long seed = 1; seed <= 10; seed++) {
+            EdgeList edges = random(seed, 30);
+            ResidualGraph heap = new ResidualGraph(edges);
+            try (OffHeapResidualGraph offHeap = new OffHeapResidualGraph(edges)) {
+                for (String name : MaxFlowSolvers.names()) {
+                    MaxFlowSolver solver = MaxFlowSolvers.create(name);
+                    try {
+                        heap.reset();
+                        offHeap.reset();
+                        double expected = solver.findMaxFlow(heap);
+                        assertEquals(expected, solver.findMaxFlow(offHeap), name + " seed " + seed);
+                        assertEquals(expected, offHeap.getGraphFlow(), name + " seed " + seed);
+                    } finally {
+                        if (solver instanceof AutoCloseable) {
+                            ((AutoCloseable) solver).close();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void capacityChangesAndReset() throws Exception {
+        EdgeList edges = random(3, 20);
+        try (OffHeapResidualGraph graph = new OffHeapResidualGraph(edges)) {
+            int arc = graph.getFirstArc(graph.getSource());
+            graph.increaseFlow(arc, graph.getResidualCapacity(arc));
+            // lowering the capacity below the flow takes the extra flow off
+            double flow = graph.getFlow(arc);
+            assertEquals(flow / 2, graph.setCapacity(arc, flow / 2));
+            assertEquals(flow / 2, graph.getFlow(arc));
+            graph.reset();
+            assertEquals(0, graph.getFlow(arc));
+            assertEquals(flow / 2, graph.getResidualCapacity(arc));
+        }
+    }
+
+    @Test
+    void closedGraphFailsAndClosesOnce() {
+        OffHeapResidualGraph graph = new OffHeapResidualGraph(random(2, 10));
+        graph.close();
+        graph.close();
+        assertThrows(RuntimeException.class, () -> graph.getHead(0));
+    }
+
+    /**
+     * A random network on s, t and n other vertices whose first arc out of s has capacity.
+     */
+    private static EdgeList random(long seed, int n) {
+        Random random = new Random(seed);
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        builder.addEdge("s", "v0", 1 + random.nextInt(20));
+        for (int e = 0; e < 4 * n; e++) {
+            int tail = random.nextInt(n + 2);
+            int head = random.nextInt(n + 2);
+            if (tail != head) {
+                builder.addEdge(name(tail, n), name(head, n), random.nextInt(20));
+            }
+        }
+        return builder.toEdgeList();
+    }
+
+    private static String name(int vertex, int n) {
+        return vertex == n ? "s" : vertex == n + 1 ? "t" : "v" + vertex;
+    }
+}
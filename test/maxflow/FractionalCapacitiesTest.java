@@ -0,0 +1,38 @@
+package maxflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import flowgraph.EdgeList;
+import flowgraph.ResidualGraph;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Capacities that are not whole numbers must not keep an engine relabelling the rounding left
+ * over at a vertex forever.
+ */
+class FractionalCapacitiesTest {
+    @Test
+    void everyEngineFinishesOnFractionalCapacities() throws Exception {
+        for (String name : MaxFlowSolvers.names()) {
+            MaxFlowSolver solver = MaxFlowSolvers.create(name);
+            try {
+                for (long seed = 1; seed <= 400; seed++) {
+                    EdgeList edges = TestGraphs.fractional(seed, 4 + (int) (seed % 40));
+                    double expected = TestGraphs.reference(edges);
+                    ResidualGraph graph = new ResidualGraph(edges);
+                    double flow = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                            () -> solver.findMaxFlow(graph), name + " seed " + seed);
+                    assertEquals(expected, flow, 1e-9 * Math.max(1, expected), name + " seed " + seed);
+                }
+            } finally {
+                if (solver instanceof AutoCloseable) {
+                    ((AutoCloseable) solver).close();
+                }
+            }
+        }
+    }
+}
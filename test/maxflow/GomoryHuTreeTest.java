@@ -0,0 +1,74 @@
+package maxflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import flowgraph.EdgeList;
+import flowgraph.ResidualGraph;
+import flowgraph.ResidualGraphBuilder;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The tree must give the minimum cut of every pair that a max-flow between the two gives.
+ */
+class GomoryHuTreeTest {
+    @Test
+    void path() throws Exception {
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        addUndirected(builder, "a", "b", 3);
+        addUndirected(builder, "b", "c", 2);
+        addUndirected(builder, "c", "d", 5);
+        GomoryHuTree tree = GomoryHuTree.build(builder.toEdgeList(), 1);
+        assertEquals(3, tree.minCut("a", "b"));
+        assertEquals(2, tree.minCut("a", "d"));
+        assertEquals(5, tree.minCut("d", "c"));
+        assertEquals(Double.POSITIVE_INFINITY, tree.minCut("b", "b"));
+    }
+
+    @Test
+    void everyPairMatchesMaxFlow() throws Exception {
+        for (long seed = 1; seed <= 20; seed++) {
+            EdgeList edges = randomUndirected(seed, 4 + (int) (seed % 9));
+            GomoryHuTree sequential = GomoryHuTree.build(edges, 1);
+            GomoryHuTree parallel = GomoryHuTree.build(edges, 3);
+            ResidualGraph graph = new ResidualGraph(edges);
+            Dinic dinic = new Dinic();
+            for (int u = 0; u < edges.getVerticesNum(); u++) {
+                for (int v = u + 1; v < edges.getVerticesNum(); v++) {
+                    graph.reset();
+                    graph.setTerminals(u, v);
+                    double expected = dinic.findMaxFlow(graph);
+                    String pair = "seed " + seed + " pair " + u + ", " + v;
+                    assertEquals(expected, sequential.minCut(u, v), pair);
+                    assertEquals(expected, parallel.minCut(u, v), pair);
+                }
+            }
+        }
+    }
+
+    private static void addUndirected(ResidualGraphBuilder builder, String u, String v, double capacity) {
+        builder.addEdge(u, v, capacity);
+        builder.addEdge(v, u, capacity);
+    }
+
+    /**
+     * A random connected undirected graph: a path through all vertices plus random chords.
+     */
+    private static EdgeList randomUndirected(long seed, int n) {
+        Random random = new Random(seed);
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        for (int v = 1; v < n; v++) {
+            addUndirected(builder, "u" + (v - 1), "u" + v, 1 + random.nextInt(9));
+        }
+        for (int e = 0; e < n; e++) {
+            int u = random.nextInt(n);
+            int v = random.nextInt(n);
+            if (u != v) {
+                addUndirected(builder, "u" + u, "u" + v, 1 + random.nextInt(9));
+            }
+        }
+        return builder.toEdgeList();
+    }
+}
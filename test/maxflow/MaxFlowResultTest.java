@@ -0,0 +1,113 @@
+package maxflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import flowgraph.EdgeList;
+import flowgraph.IntegralResidualGraph;
+import flowgraph.ResidualGraph;
+import flowgraph.ResidualGraphBuilder;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every registered engine must return the maximum flow value with a cut of that capacity.
+ */
+class MaxFlowResultTest {
+    @Test
+    void everyEngineFindsAMinimumCut() throws Exception {
+        List<EdgeList> graphs = new ArrayList<>();
+        graphs.add(TestGraphs.textbook());
+        graphs.add(bipartite(3, false));
+        graphs.add(bipartite(4, true));
+        for (long seed = 1; seed <= 30; seed++) {
+            graphs.add(TestGraphs.random(seed, 4 + (int) (seed % 11)));
+        }
+        for (String name : MaxFlowSolvers.names()) {
+            MaxFlowSolver solver = MaxFlowSolvers.create(name);
+            try {
+                for (int i = 0; i < graphs.size(); i++) {
+                    EdgeList edges = graphs.get(i);
+                    ResidualGraph graph = new ResidualGraph(edges);
+                    MaxFlowResult result = solver.solve(graph);
+                    assertMinimumCut(graph, result, TestGraphs.reference(edges), name + " on graph " + i);
+                }
+            } finally {
+                if (solver instanceof AutoCloseable) {
+                    ((AutoCloseable) solver).close();
+                }
+            }
+        }
+    }
+
+    @Test
+    void integralDinicFindsAMinimumCut() throws Exception {
+        for (long seed = 1; seed <= 30; seed++) {
+            EdgeList edges = TestGraphs.random(seed, 4 + (int) (seed % 11));
+            IntegralResidualGraph graph = IntegralResidualGraph.create(edges);
+            MaxFlowResult result = new Dinic().solve(graph);
+            double expected = TestGraphs.reference(edges);
+            assertEquals(expected, result.getValue());
+            double capacity = 0;
+            for (int arc : result.getCutArcs()) {
+                assertTrue(result.isSourceSide(graph.getTail(arc)));
+                assertFalse(result.isSourceSide(graph.getHead(arc)));
+                capacity += graph.getCapacity(arc);
+            }
+            assertEquals(expected, capacity, "seed " + seed);
+        }
+    }
+
+    /**
+     * The cut separates the terminals, its arcs are exactly the forward arcs leaving the source
+     * side, they add up to the flow value, and no residual arc leaves the source side.
+     */
+    private static void assertMinimumCut(ResidualGraph graph, MaxFlowResult result, double expected, String where) {
+        assertEquals(expected, result.getValue(), where);
+        BitSet side = result.getSourceSide();
+        assertTrue(side.get(graph.getSource()), where);
+        assertFalse(side.get(graph.getSink()), where);
+
+        List<Integer> leaving = new ArrayList<>();
+        for (int v = 0; v < graph.getVerticesNum(); v++) {
+            for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                if (side.get(v) && !side.get(graph.getHead(arc))) {
+                    assertFalse(graph.isResidual(arc), where + ": residual arc " + arc + " leaves the cut");
+                    if (!graph.isBackward(arc)) {
+                        leaving.add(arc);
+                    }
+                }
+            }
+        }
+        double capacity = 0;
+        int[] cutArcs = result.getCutArcs();
+        assertEquals(leaving.size(), cutArcs.length, where);
+        for (int i = 0; i < cutArcs.length; i++) {
+            assertEquals((int) leaving.get(i), cutArcs[i], where);
+            capacity += graph.getCapacity(cutArcs[i]);
+        }
+        assertEquals(expected, capacity, where);
+    }
+
+    /**
+     * s to k left vertices to k right vertices to t, every left vertex joined to two right ones;
+     * unit capacities make it a matching.
+     */
+    private static EdgeList bipartite(int k, boolean unit) {
+        Random random = new Random(k);
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        for (int i = 0; i < k; i++) {
+            builder.addEdge("s", "l" + i, unit ? 1 : 1 + random.nextInt(9));
+            builder.addEdge("r" + i, "t", unit ? 1 : 1 + random.nextInt(9));
+            builder.addEdge("l" + i, "r" + i, unit ? 1 : 1 + random.nextInt(9));
+            builder.addEdge("l" + i, "r" + ((i + 1) % k), unit ? 1 : 1 + random.nextInt(9));
+        }
+        return builder.toEdgeList();
+    }
+}
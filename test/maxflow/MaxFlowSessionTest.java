@@ -0,0 +1,144 @@
+package maxflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import flowgraph.EdgeList;
+import flowgraph.ResidualGraphBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every warm solve must find the flow a solve from zero finds, with the edges changed in place,
+ * merged into existing arcs or added with new vertices.
+ */
+class MaxFlowSessionTest {
+    private static final String[] SOURCE = {"s"};
+    private static final String[] SINK = {"t"};
+
+    /**
+     * The edges of a session, kept on the side to solve from zero.
+     */
+    private static final class Mirror {
+        final List<String> tails = new ArrayList<>();
+        final List<String> heads = new ArrayList<>();
+        final List<Double> capacities = new ArrayList<>();
+
+        Mirror(EdgeList edges) {
+            for (int e = 0; e < edges.getEdgesNum(); e++) {
+                this.add(edges.getName(edges.getFrom(e)), edges.getName(edges.getTo(e)), edges.getCapacity(e));
+            }
+        }
+
+        void add(String tail, String head, double capacity) {
+            this.tails.add(tail);
+            this.heads.add(head);
+            this.capacities.add(capacity);
+        }
+
+        EdgeList toEdgeList() {
+            ResidualGraphBuilder builder = new ResidualGraphBuilder();
+            for (int e = 0; e < this.tails.size(); e++) {
+                builder.addEdge(this.tails.get(e), this.heads.get(e), this.capacities.get(e));
+            }
+            return builder.toEdgeList();
+        }
+    }
+
+    @Test
+    void textbookChanges() throws Exception {
+        EdgeList edges = TestGraphs.textbook();
+        Mirror mirror = new Mirror(edges);
+        MaxFlowSession session = new MaxFlowSession(edges);
+        assertEquals(23, session.findMaxFlow());
+
+        // v1 -> v3 crosses the minimum cut, lowering it by two lowers the flow by two
+        session.setCapacity(3, 10);
+        mirror.capacities.set(3, 10.0);
+        assertEquals(21, session.findMaxFlow());
+        // a parallel edge is merged into the arc of v1 -> v3
+        session.addEdge("v1", "v3", 5);
+        mirror.add("v1", "v3", 5);
+        assertEquals(TestGraphs.reference(mirror.toEdgeList()), session.findMaxFlow());
+        // a new vertex forces a rebuild
+        session.addEdge("s", "x", 10);
+        mirror.add("s", "x", 10);
+        session.addEdge("x", "t", 3);
+        mirror.add("x", "t", 3);
+        assertEquals(TestGraphs.reference(mirror.toEdgeList()), session.findMaxFlow());
+        session.removeEdge(0);
+        mirror.capacities.set(0, 0.0);
+        assertEquals(TestGraphs.reference(mirror.toEdgeList()), session.findMaxFlow());
+        assertNull(TestGraphs.checkFlow(session.getGraph()));
+    }
+
+    @Test
+    void randomChangesMatchSolveFromZero() throws Exception {
+        for (long seed = 1; seed <= 150; seed++) {
+            this.replay(seed, SOURCE, SINK);
+        }
+    }
+
+    @Test
+    void randomChangesWithSeveralTerminals() throws Exception {
+        for (long seed = 1; seed <= 150; seed++) {
+            this.replay(seed, new String[] {"s", "v2"}, new String[] {"t", "v3"});
+        }
+    }
+
+    @Test
+    void negativeCapacityIsRejected() {
+        MaxFlowSession session = new MaxFlowSession(TestGraphs.textbook());
+        assertThrows(IllegalArgumentException.class, () -> session.setCapacity(0, -1));
+        assertThrows(IllegalArgumentException.class, () -> session.addEdge("s", "t", -1));
+    }
+
+    /**
+     * Twenty rounds of one to three random changes on a random graph, each followed by a warm
+     * solve that is checked against Dinic on a graph built from zero.
+     */
+    private void replay(long seed, String[] sources, String[] sinks) throws Exception {
+        Random random = new Random(seed);
+        int n = 5 + random.nextInt(12);
+        EdgeList edges = TestGraphs.random(seed, n);
+        Mirror mirror = new Mirror(edges);
+        // make sure every terminal exists
+        for (String terminal : new String[] {"v2", "v3"}) {
+            mirror.add(terminal, "t", 0);
+        }
+        MaxFlowSession session = new MaxFlowSession(mirror.toEdgeList());
+        session.getGraph().setTerminals(sources, sinks);
+        assertEquals(TestGraphs.reference(mirror.toEdgeList(), sources, sinks), session.findMaxFlow());
+
+        for (int round = 0; round < 20; round++) {
+            int changes = 1 + random.nextInt(3);
+            for (int i = 0; i < changes; i++) {
+                int change = random.nextInt(4);
+                if (change == 0) {
+                    String tail = TestGraphs.name(random.nextInt(n + 3));
+                    String head = TestGraphs.name(random.nextInt(n + 3));
+                    if (!tail.equals(head)) {
+                        double capacity = random.nextInt(10);
+                        session.addEdge(tail, head, capacity);
+                        mirror.add(tail, head, capacity);
+                    }
+                } else {
+                    int edge = random.nextInt(mirror.capacities.size());
+                    double capacity = change == 1 ? 0 : random.nextInt(12);
+                    session.setCapacity(edge, capacity);
+                    mirror.capacities.set(edge, capacity);
+                }
+            }
+            String where = "seed " + seed + " round " + round;
+            assertEquals(TestGraphs.reference(mirror.toEdgeList(), sources, sinks), session.findMaxFlow(), where);
+            assertNull(TestGraphs.checkFlow(session.getGraph()), where);
+            assertEquals(sources.length, session.getGraph().getSources().length, where);
+            assertEquals(sinks.length, session.getGraph().getSinks().length, where);
+        }
+    }
+}
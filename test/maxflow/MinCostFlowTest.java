@@ -0,0 +1,151 @@
+package maxflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import flowgraph.CostResidualGraph;
+import flowgraph.EdgeList;
+import flowgraph.ResidualGraphBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import simplegraph.GraphInput;
+import simplegraph.SimpleGraph;
+
+/**
+ * Both methods must find a maximum flow of the same, minimum cost.
+ */
+class MinCostFlowTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Both units out of s through b are forced, so the cheapest flow of 4 costs
+     * 2 * 1 + 2 * 5 on the source arcs, 1 + 1 out of a and 3 into t from b.
+     */
+    private static EdgeList forcedExpensiveArc() {
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        builder.addEdge("s", "a", 2, 1);
+        builder.addEdge("s", "b", 2, 5);
+        builder.addEdge("a", "t", 1, 1);
+        builder.addEdge("a", "b", 2, 1);
+        builder.addEdge("b", "t", 3, 1);
+        return builder.toEdgeList();
+    }
+
+    @Test
+    void handCheckedCost() throws Exception {
+        for (MinCostFlow.Method method : MinCostFlow.Method.values()) {
+            CostResidualGraph graph = new CostResidualGraph(forcedExpensiveArc());
+            assertEquals(4, new MinCostFlow(method).findMinCostFlow(graph), method.toString());
+            assertEquals(17, graph.getFlowCost(), method.toString());
+        }
+    }
+
+    @Test
+    void costColumnOfTheSimpleGraphLoader() throws Exception {
+        Path file = this.directory.resolve("costs.txt");
+        Files.write(file, "s a 2 1\ns b 2 5\na t 1 1\na b 2 1\nb t 3 1\n".getBytes());
+        SimpleGraph simpleGraph = new SimpleGraph();
+        GraphInput.LoadSimpleGraph(simpleGraph, file.toString());
+        CostResidualGraph graph = new CostResidualGraph(EdgeList.of(simpleGraph));
+        assertEquals(4, new MinCostFlow().findMinCostFlow(graph));
+        assertEquals(17, graph.getFlowCost());
+    }
+
+    @Test
+    void methodsAgreeOnRandomGraphs() throws Exception {
+        MinCostFlow shortestPaths = new MinCostFlow(MinCostFlow.Method.SUCCESSIVE_SHORTEST_PATHS);
+        MinCostFlow scaling = new MinCostFlow(MinCostFlow.Method.COST_SCALING);
+        for (long seed = 1; seed <= 60; seed++) {
+            // acyclic, so successive shortest paths never meets a negative cycle
+            EdgeList edges = randomAcyclic(seed, 3 + (int) (seed % 15), seed % 2 == 0);
+            double expected = TestGraphs.reference(edges);
+            String where = "seed " + seed;
+
+            CostResidualGraph first = new CostResidualGraph(edges);
+            assertEquals(expected, shortestPaths.findMinCostFlow(first), where);
+            assertNull(TestGraphs.checkFlow(first), where);
+            assertTrue(hasNoNegativeCycle(first), where);
+
+            CostResidualGraph second = new CostResidualGraph(edges);
+            assertEquals(expected, scaling.findMinCostFlow(second), where);
+            assertNull(TestGraphs.checkFlow(second), where);
+            assertTrue(hasNoNegativeCycle(second), where);
+
+            assertEquals(first.getFlowCost(), second.getFlowCost(), where);
+        }
+    }
+
+    @Test
+    void negativeCycle() throws Exception {
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        builder.addEdge("s", "a", 1, 0);
+        builder.addEdge("a", "b", 2, -3);
+        builder.addEdge("b", "a", 2, -3);
+        builder.addEdge("b", "t", 1, 0);
+        EdgeList edges = builder.toEdgeList();
+        assertThrows(IllegalArgumentException.class,
+                () -> new MinCostFlow().findMinCostFlow(new CostResidualGraph(edges)));
+        // cost scaling also cancels the cycle: the unit from s to t takes a -> b, and one more
+        // unit goes around, which fills a -> b, so 3 arcs of flow at -3 each
+        CostResidualGraph graph = new CostResidualGraph(edges);
+        assertEquals(1, new MinCostFlow(MinCostFlow.Method.COST_SCALING).findMinCostFlow(graph));
+        assertEquals(-9, graph.getFlowCost());
+        assertTrue(hasNoNegativeCycle(graph));
+    }
+
+    /**
+     * The optimality certificate of a min-cost flow: Bellman-Ford over the residual arcs
+     * settles within n rounds.
+     */
+    private static boolean hasNoNegativeCycle(CostResidualGraph graph) {
+        int n = graph.getVerticesNum();
+        long[] distance = new long[n];
+        for (int round = 0; round <= n; round++) {
+            boolean changed = false;
+            for (int v = 0; v < n; v++) {
+                for (int arc = graph.getFirstArc(v); arc < graph.getLastArc(v); arc++) {
+                    int head = graph.getHead(arc);
+                    if (graph.isResidual(arc) && distance[v] + graph.getCost(arc) < distance[head]) {
+                        distance[head] = distance[v] + graph.getCost(arc);
+                        changed = true;
+                    }
+                }
+            }
+            if (!changed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Arcs only from lower to higher vertices, s first and t last, with costs that may be negative.
+     */
+    private static EdgeList randomAcyclic(long seed, int n, boolean negative) {
+        Random random = new Random(seed);
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        builder.addVertex("s");
+        for (int e = 0; e < 3 * n; e++) {
+            int u = random.nextInt(n);
+            int v = random.nextInt(n);
+            if (u != v) {
+                long cost = negative ? random.nextInt(41) - 20 : random.nextInt(100);
+                builder.addEdge("v" + Math.min(u, v), "v" + Math.max(u, v), random.nextInt(10), cost);
+            }
+        }
+        for (int e = 0; e <= n / 2; e++) {
+            builder.addEdge("s", "v" + random.nextInt(n), random.nextInt(10), random.nextInt(5));
+            builder.addEdge("v" + random.nextInt(n), "t", random.nextInt(10), random.nextInt(5));
+        }
+        return builder.toEdgeList();
+    }
+}
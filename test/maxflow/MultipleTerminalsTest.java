@@ -0,0 +1,115 @@
+package maxflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import flowgraph.EdgeList;
+import flowgraph.ResidualGraph;
+import flowgraph.ResidualGraphBuilder;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Several sources and sinks must give the flow of one super-source joined to the sources and
+ * one super-sink joined from the sinks by arcs no cut would take.
+ */
+class MultipleTerminalsTest {
+    private static final String[] SOURCES = {"s", "v2"};
+    private static final String[] SINKS = {"t", "v3"};
+    // more than the capacity of all edges of the random graphs
+    private static final double UNBOUNDED = 1e6;
+
+    @Test
+    void supportingEnginesMatchSuperTerminals() throws Exception {
+        for (String name : MaxFlowSolvers.names()) {
+            MaxFlowSolver solver = MaxFlowSolvers.create(name);
+            try {
+                if (!solver.supportsMultipleTerminals()) {
+                    continue;
+                }
+                for (long seed = 1; seed <= 40; seed++) {
+                    EdgeList edges = withTerminals(TestGraphs.random(seed, 5 + (int) (seed % 10)));
+                    double expected = superTerminalFlow(edges);
+                    String where = name + " seed " + seed;
+
+                    ResidualGraph graph = new ResidualGraph(edges);
+                    graph.setTerminals(SOURCES, SINKS);
+                    assertEquals(expected, solver.findMaxFlow(graph), where);
+                    assertNull(TestGraphs.checkFlow(graph), where);
+
+                    graph.reset();
+                    MaxFlowResult result = solver.solve(graph);
+                    assertEquals(expected, result.getValue(), where);
+                    for (int source : graph.getSources()) {
+                        assertTrue(result.isSourceSide(source), where);
+                    }
+                    for (int sink : graph.getSinks()) {
+                        assertFalse(result.isSourceSide(sink), where);
+                    }
+                    double capacity = 0;
+                    for (int arc : result.getCutArcs()) {
+                        capacity += graph.getCapacity(arc);
+                    }
+                    assertEquals(expected, capacity, where);
+                }
+            } finally {
+                if (solver instanceof AutoCloseable) {
+                    ((AutoCloseable) solver).close();
+                }
+            }
+        }
+    }
+
+    @Test
+    void otherEnginesRejectSeveralTerminals() throws Exception {
+        EdgeList edges = withTerminals(TestGraphs.random(1, 8));
+        for (String name : MaxFlowSolvers.names()) {
+            MaxFlowSolver solver = MaxFlowSolvers.create(name);
+            try {
+                if (solver.supportsMultipleTerminals()) {
+                    continue;
+                }
+                ResidualGraph graph = new ResidualGraph(edges);
+                graph.setTerminals(SOURCES, SINKS);
+                assertThrows(IllegalArgumentException.class, () -> solver.findMaxFlow(graph), name);
+            } finally {
+                if (solver instanceof AutoCloseable) {
+                    ((AutoCloseable) solver).close();
+                }
+            }
+        }
+    }
+
+    /**
+     * The edges with an empty edge into each terminal, so that all of them exist.
+     */
+    private static EdgeList withTerminals(EdgeList edges) {
+        ResidualGraphBuilder builder = copy(edges);
+        for (String terminal : new String[] {"s", "t", "v2", "v3"}) {
+            builder.addEdge("v4", terminal, 0);
+        }
+        return builder.toEdgeList();
+    }
+
+    private static double superTerminalFlow(EdgeList edges) throws Exception {
+        ResidualGraphBuilder builder = copy(edges);
+        for (String source : SOURCES) {
+            builder.addEdge("superSource", source, UNBOUNDED);
+        }
+        for (String sink : SINKS) {
+            builder.addEdge(sink, "superSink", UNBOUNDED);
+        }
+        return TestGraphs.reference(builder.toEdgeList(), new String[] {"superSource"}, new String[] {"superSink"});
+    }
+
+    private static ResidualGraphBuilder copy(EdgeList edges) {
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        for (int e = 0; e < edges.getEdgesNum(); e++) {
+            builder.addEdge(edges.getName(edges.getFrom(e)), edges.getName(edges.getTo(e)), edges.getCapacity(e));
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,110 @@
+package maxflow;
+
+import flowgraph.EdgeList;
+import flowgraph.ResidualGraph;
+import flowgraph.ResidualGraphBuilder;
+
+import java.util.Random;
+
+/**
+ * Small fixed graphs for the regression tests, and Dinic as the reference engine.
+ */
+final class TestGraphs {
+    private TestGraphs() {
+    }
+
+    /**
+     * The network of CLRS figure 26.1, maximum flow 23.
+     */
+    static EdgeList textbook() {
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        builder.addEdge("s", "v1", 16);
+        builder.addEdge("s", "v2", 13);
+        builder.addEdge("v2", "v1", 4);
+        builder.addEdge("v1", "v3", 12);
+        builder.addEdge("v3", "v2", 9);
+        builder.addEdge("v2", "v4", 14);
+        builder.addEdge("v4", "v3", 7);
+        builder.addEdge("v3", "t", 20);
+        builder.addEdge("v4", "t", 4);
+        return builder.toEdgeList();
+    }
+
+    /**
+     * A random network on s, t and up to n - 2 other vertices, with about 2n edges of integral
+     * capacity below 10, some of them zero.
+     */
+    static EdgeList random(long seed, int n) {
+        Random random = new Random(seed);
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        builder.addEdge("s", "t", 0);
+        for (int e = 0; e < 2 * n; e++) {
+            String tail = name(random.nextInt(n));
+            String head = name(random.nextInt(n));
+            if (!tail.equals(head)) {
+                builder.addEdge(tail, head, random.nextInt(10));
+            }
+        }
+        return builder.toEdgeList();
+    }
+
+    /**
+     * A random network on s, t and up to n - 2 other vertices, with about 3n edges whose
+     * capacities are sevenths, so that pushed amounts round and leave tiny excesses behind.
+     */
+    static EdgeList fractional(long seed, int n) {
+        Random random = new Random(seed);
+        ResidualGraphBuilder builder = new ResidualGraphBuilder();
+        builder.addEdge("s", "t", 0);
+        for (int e = 0; e < 3 * n; e++) {
+            String tail = name(random.nextInt(n));
+            String head = name(random.nextInt(n));
+            if (!tail.equals(head)) {
+                builder.addEdge(tail, head, (1 + random.nextInt(20)) / 7.0);
+            }
+        }
+        return builder.toEdgeList();
+    }
+
+    static String name(int vertex) {
+        return vertex == 0 ? "s" : vertex == 1 ? "t" : "v" + vertex;
+    }
+
+    /**
+     * @return The maximum flow of a fresh graph of the edges between the named terminals, by Dinic.
+     */
+    static double reference(EdgeList edges, String[] sources, String[] sinks) throws Exception {
+        ResidualGraph graph = new ResidualGraph(edges);
+        graph.setTerminals(sources, sinks);
+        return new Dinic().findMaxFlow(graph);
+    }
+
+    static double reference(EdgeList edges) throws Exception {
+        return new Dinic().findMaxFlow(new ResidualGraph(edges));
+    }
+
+    /**
+     * @return Null if the graph holds a feasible flow, conserved everywhere but at the
+     *         terminals, or else what is wrong with it.
+     */
+    static String checkFlow(ResidualGraph graph) {
+        double[] balance = new double[graph.getVerticesNum()];
+        for (int arc = 0; arc < graph.getArcsNum(); arc++) {
+            if (graph.isBackward(arc)) {
+                continue;
+            }
+            double flow = graph.getFlow(arc);
+            if (flow < 0 || flow > graph.getCapacity(arc)) {
+                return "flow " + flow + " outside [0, " + graph.getCapacity(arc) + "] on arc " + arc;
+            }
+            balance[graph.getTail(arc)] -= flow;
+            balance[graph.getHead(arc)] += flow;
+        }
+        for (int v = 0; v < balance.length; v++) {
+            if (!graph.isTerminal(v) && balance[v] != 0) {
+                return "flow not conserved at " + graph.getVertexName(v) + ": " + balance[v];
+            }
+        }
+        return null;
+    }
+}